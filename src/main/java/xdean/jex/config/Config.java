@@ -1,19 +1,97 @@
 package xdean.jex.config;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import lombok.extern.slf4j.Slf4j;
+import xdean.jex.util.lang.PrimitiveTypeUtil;
+import xdean.jex.util.metrics.Counter;
+import xdean.jex.util.metrics.Metrics;
 
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Global properties persisted in the located file.<br>
+ * Updates are written behind: all updates in the save delay window are coalesced into one write, which goes to a temp
+ * file and then replaces the config file atomically. Pending updates are flushed on JVM shutdown, or call
+ * {@link #flush()} explicitly.<br>
+ * Reads never lock, they go to an immutable snapshot which is replaced on every update. With
+ * {@link #setHotReload(boolean)}, the file is watched and external modifications are reloaded, {@link ConfigListener}s
+ * are notified for the keys really changed.<br>
+ * Typed getters parse a value at most once per snapshot, later reads return the cached result. An invalid value is
+ * logged once and treated as absent.
+ */
 @Slf4j
 public class Config {
-  private static final Properties CONFIG = new Properties();
-  private static Path configFile;
+  private static final Object LOCK = new Object();
+  private static final Object SAVE_LOCK = new Object();
+  private static final List<ConfigListener> LISTENERS = new CopyOnWriteArrayList<>();
+  private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("Config-Saver")
+          .build());
+  private static final AtomicBoolean DIRTY = new AtomicBoolean();
+  private static volatile Path configFile;
+  private static volatile long saveDelay = 500;
+  private static final long RETRY_DELAY = 1000;
+  private static final Counter SAVE_COUNTER = Metrics.counter("config.save");
+  private static final Object INVALID = new Object();
+  private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final Function<String, Duration> DURATION_PARSER = Config::parseDuration;
+  private static final Function<String, List<String>> LIST_PARSER = s -> ImmutableList.copyOf(LIST_SPLITTER.split(s));
+  private static final Map<Class<?>, Function<String, ?>> ENUM_PARSERS = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Function<String, ?>> LIST_PARSERS = new ConcurrentHashMap<>();
+  private static volatile Snapshot snapshot = new Snapshot(ImmutableMap.of());
+  /**
+   * Last known content of the file, guarded by SAVE_LOCK.
+   */
+  private static Map<String, String> fileValues = ImmutableMap.of();
+  private static ScheduledFuture<?> pendingSave;
+  private static WatchService watcher;
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(Config::flush, "Config-Flush"));
+  }
 
+  /**
+   * Load the file and save updates to it. File values are merged over the current ones, properties set before and not
+   * in the file are kept and saved to it.
+   */
   public static void locate(Path configPath, Path defaultConfig) {
+    Change change = null;
     try {
       if (Files.notExists(configPath)) {
         if (Files.exists(defaultConfig)) {
@@ -22,16 +100,122 @@ public class Config {
           Files.createFile(configPath);
         }
       }
-      CONFIG.load(Files.newBufferedReader(configPath));
+      Map<String, String> map = read(configPath);
+      synchronized (SAVE_LOCK) {
+        fileValues = map;
+        synchronized (LOCK) {
+          Map<String, String> merged = new HashMap<>(snapshot.values);
+          merged.putAll(map);
+          change = replaceAll(merged);
+          if (!merged.equals(map)) {
+            DIRTY.set(true);
+          }
+          configFile = configPath;
+        }
+      }
     } catch (IOException e) {
       log.error("IOException", e);
     }
-    log.debug("Load last config: " + CONFIG.toString());
     configFile = configPath;
+    log.debug("Load last config: " + snapshot.values.toString());
+    // listeners updating the config during the fire save to the located file
+    fire(change);
+    if (DIRTY.get()) {
+      scheduleSave();
+    }
+  }
+
+  /**
+   * Watch the located file and reload it when modified by others. Reload is skipped while there are unsaved local
+   * updates, which will overwrite the file soon, and for the file written by the config itself.
+   */
+  public static void setHotReload(boolean enable) {
+    synchronized (LOCK) {
+      if (enable == (watcher != null)) {
+        return;
+      }
+      if (enable) {
+        Path file = configFile;
+        if (file == null) {
+          throw new IllegalStateException("Config file not located.");
+        }
+        try {
+          watcher = file.getFileSystem().newWatchService();
+          file.toAbsolutePath().getParent().register(watcher,
+              StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+          throw new IllegalStateException("Can't watch config file " + file, e);
+        }
+        WatchService ws = watcher;
+        Thread thread = new Thread(() -> watch(ws, file), "Config-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+      } else {
+        try {
+          watcher.close();
+        } catch (IOException e) {
+          log.debug("Fail to close watcher.", e);
+        }
+        watcher = null;
+      }
+    }
+  }
+
+  /**
+   * Reload the located file now.
+   *
+   * @see #setHotReload(boolean)
+   */
+  public static void reload() {
+    Path file = configFile;
+    if (file == null) {
+      return;
+    }
+    Change change;
+    // no save in progress, so the file is not older than the saved snapshot
+    synchronized (SAVE_LOCK) {
+      Map<String, String> map;
+      try {
+        map = read(file);
+      } catch (IOException e) {
+        log.error("Fail to reload config.", e);
+        return;
+      }
+      if (map.equals(fileValues)) {
+        return;
+      }
+      synchronized (LOCK) {
+        if (DIRTY.get()) {
+          return;
+        }
+        fileValues = map;
+        change = replaceAll(map);
+      }
+    }
+    fire(change);
+  }
+
+  public static void addListener(ConfigListener listener) {
+    LISTENERS.add(listener);
+  }
+
+  public static void removeListener(ConfigListener listener) {
+    LISTENERS.remove(listener);
+  }
+
+  /**
+   * Set the write behind window. Updates are saved at most this long after the first unsaved update. 0 means save
+   * synchronously on every update. Default is 500 ms. A failed save is retried after the delay, at least 1 second.
+   */
+  public static void setSaveDelay(long delay, TimeUnit unit) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("Delay can't be negative: " + delay);
+    }
+    saveDelay = unit.toMillis(delay);
   }
 
   public static Optional<String> getProperty(String key) {
-    return Optional.ofNullable(CONFIG.getProperty(key));
+    return Optional.ofNullable(snapshot.values.get(key));
   }
 
   public static Optional<String> getProperty(Object key) {
@@ -46,13 +230,96 @@ public class Config {
     return getProperty(key).orElse(defaultValue);
   }
 
+  public static int getInt(String key, int defaultValue) {
+    Integer value = getParsed(key, PrimitiveTypeUtil.getParser(int.class));
+    return value == null ? defaultValue : value;
+  }
+
+  public static long getLong(String key, long defaultValue) {
+    Long value = getParsed(key, PrimitiveTypeUtil.getParser(long.class));
+    return value == null ? defaultValue : value;
+  }
+
+  public static double getDouble(String key, double defaultValue) {
+    Double value = getParsed(key, PrimitiveTypeUtil.getParser(double.class));
+    return value == null ? defaultValue : value;
+  }
+
+  public static boolean getBoolean(String key, boolean defaultValue) {
+    Boolean value = getParsed(key, PrimitiveTypeUtil.getParser(boolean.class));
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Get a duration value. Accept ISO-8601 format ({@code PT1.5S}), or a number with unit suffix {@code ms}, {@code s},
+   * {@code m}, {@code h}, {@code d}. A plain number is in milliseconds.
+   */
+  public static Duration getDuration(String key, Duration defaultValue) {
+    Duration value = getParsed(key, DURATION_PARSER);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Get an enum value by its name, case-insensitive.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E extends Enum<E>> E getEnum(String key, Class<E> type, E defaultValue) {
+    Function<String, ?> parser = ENUM_PARSERS.get(type);
+    if (parser == null) {
+      parser = ENUM_PARSERS.computeIfAbsent(type, Config::enumParser);
+    }
+    E value = getParsed(key, (Function<String, E>) parser);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Get a comma separated list, elements are trimmed. Empty list if absent.
+   */
+  public static List<String> getList(String key) {
+    List<String> value = getParsed(key, LIST_PARSER);
+    return value == null ? ImmutableList.of() : value;
+  }
+
+  /**
+   * Get a comma separated list of primitive values or strings. Empty list if absent or any element is invalid.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> List<T> getList(String key, Class<T> elementType) {
+    if (elementType == String.class) {
+      return (List<T>) getList(key);
+    }
+    Function<String, ?> parser = LIST_PARSERS.get(elementType);
+    if (parser == null) {
+      parser = LIST_PARSERS.computeIfAbsent(elementType, Config::listParser);
+    }
+    List<T> value = getParsed(key, (Function<String, List<T>>) parser);
+    return value == null ? ImmutableList.of() : value;
+  }
+
   public static void setProperty(Object key, String value) {
     setProperty(key.toString(), value);
   }
 
   public static void setProperty(String key, String value) {
-    CONFIG.setProperty(key, value);
-    save();
+    setProperties(ImmutableMap.of(key, value));
+  }
+
+  /**
+   * Set all properties and save them together.
+   */
+  public static void setProperties(Map<String, String> properties) {
+    Change change;
+    synchronized (LOCK) {
+      Map<String, String> map = new HashMap<>(snapshot.values);
+      map.putAll(properties);
+      change = replaceAll(map);
+      if (change == null) {
+        return;
+      }
+      DIRTY.set(true);
+    }
+    fire(change);
+    scheduleSave();
   }
 
   public static void setIfAbsent(Object key, String value) {
@@ -65,14 +332,280 @@ public class Config {
     }
   }
 
-  private static synchronized void save() {
-    if (configFile == null) {
+  /**
+   * Save pending updates now.
+   */
+  public static void flush() {
+    synchronized (SAVER) {
+      if (pendingSave != null) {
+        pendingSave.cancel(false);
+        pendingSave = null;
+      }
+    }
+    save();
+  }
+
+  /**
+   * Forget all properties and the located file without saving, for tests.
+   */
+  static void clear() {
+    synchronized (SAVER) {
+      if (pendingSave != null) {
+        pendingSave.cancel(false);
+        pendingSave = null;
+      }
+    }
+    synchronized (SAVE_LOCK) {
+      synchronized (LOCK) {
+        DIRTY.set(false);
+        configFile = null;
+        fileValues = ImmutableMap.of();
+        snapshot = new Snapshot(ImmutableMap.of());
+      }
+    }
+  }
+
+  private static void scheduleSave() {
+    long delay = saveDelay;
+    if (delay == 0) {
+      save();
+    } else {
+      schedule(delay);
+    }
+  }
+
+  private static void schedule(long delay) {
+    synchronized (SAVER) {
+      if (pendingSave == null) {
+        pendingSave = SAVER.schedule(Config::scheduledSave, delay, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private static void scheduledSave() {
+    // updates from now on schedule the next save, this one may not see them
+    synchronized (SAVER) {
+      pendingSave = null;
+    }
+    save();
+  }
+
+  /**
+   * Save the current snapshot if dirty. If failed, retry later.
+   */
+  private static void save() {
+    synchronized (SAVE_LOCK) {
+      doSave();
+    }
+  }
+
+  private static void doSave() {
+    Path file = configFile;
+    if (file == null || !DIRTY.compareAndSet(true, false)) {
       return;
     }
+    Path temp = null;
     try {
-      CONFIG.store(Files.newOutputStream(configFile), "");
+      Path dir = file.toAbsolutePath().getParent();
+      temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+      ImmutableMap<String, String> values = snapshot.values;
+      Properties properties = new Properties();
+      properties.putAll(values);
+      try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+        properties.store(output, "");
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      fileValues = values;
+      SAVE_COUNTER.increment();
     } catch (IOException e) {
-      log.error("", e);
+      DIRTY.set(true);
+      log.error("Fail to save config, retry later.", e);
+      schedule(Math.max(saveDelay, RETRY_DELAY));
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException e) {
+          log.debug("Fail to delete temp file " + temp, e);
+        }
+      }
+    }
+  }
+
+  private static Map<String, String> read(Path file) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file)) {
+      properties.load(reader);
+    }
+    Map<String, String> map = new HashMap<>();
+    properties.stringPropertyNames().forEach(k -> map.put(k, properties.getProperty(k)));
+    return map;
+  }
+
+  /**
+   * Publish the new snapshot. Must hold LOCK, and {@link #fire(Change)} the result after release it.
+   *
+   * @return the change, or null if nothing changed
+   */
+  private static Change replaceAll(Map<String, String> map) {
+    ImmutableMap<String, String> old = snapshot.values;
+    if (old.equals(map)) {
+      return null;
+    }
+    ImmutableMap<String, String> now = ImmutableMap.copyOf(map);
+    snapshot = new Snapshot(now);
+    return new Change(old, now);
+  }
+
+  /**
+   * Notify listeners for the keys really changed. Never call it with a lock held.
+   */
+  private static void fire(Change change) {
+    if (change == null || LISTENERS.isEmpty()) {
+      return;
+    }
+    Set<String> keys = new HashSet<>(change.old.keySet());
+    keys.addAll(change.now.keySet());
+    for (String key : keys) {
+      String oldValue = change.old.get(key);
+      String newValue = change.now.get(key);
+      if (!Objects.equals(oldValue, newValue)) {
+        for (ConfigListener listener : LISTENERS) {
+          try {
+            listener.changed(key, Optional.ofNullable(oldValue), Optional.ofNullable(newValue));
+          } catch (RuntimeException e) {
+            log.error("Config listener error.", e);
+          }
+        }
+      }
+    }
+  }
+
+  private static void watch(WatchService ws, Path file) {
+    Path name = file.getFileName();
+    try {
+      while (true) {
+        WatchKey key = ws.take();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (name.equals(event.context())) {
+            changed = true;
+          }
+        }
+        key.reset();
+        if (changed) {
+          reload();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      log.debug("Config watcher stopped.");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T getParsed(String key, Function<String, T> parser) {
+    Snapshot current = snapshot;
+    String text = current.values.get(key);
+    if (text == null) {
+      return null;
+    }
+    Map<String, Object> cache = current.parsed.get(parser);
+    if (cache == null) {
+      cache = current.parsed.computeIfAbsent(parser, p -> new ConcurrentHashMap<>());
+    }
+    Object value = cache.get(key);
+    if (value == null) {
+      try {
+        value = parser.apply(text);
+      } catch (RuntimeException e) {
+        log.warn("Invalid config value {}={}: {}", key, text, e.toString());
+      }
+      if (value == null) {
+        value = INVALID;
+      }
+      cache.put(key, value);
+    }
+    return value == INVALID ? null : (T) value;
+  }
+
+  private static Function<String, ?> enumParser(Class<?> type) {
+    Object[] constants = type.getEnumConstants();
+    return s -> {
+      for (Object e : constants) {
+        if (((Enum<?>) e).name().equalsIgnoreCase(s.trim())) {
+          return e;
+        }
+      }
+      throw new IllegalArgumentException("No enum constant " + type.getName() + "." + s);
+    };
+  }
+
+  private static Function<String, ?> listParser(Class<?> elementType) {
+    Function<String, ?> parser = PrimitiveTypeUtil.getParser(elementType);
+    if (parser == null) {
+      throw new IllegalArgumentException("Not a primitive type: " + elementType);
+    }
+    return s -> {
+      ImmutableList.Builder<Object> builder = ImmutableList.builder();
+      LIST_SPLITTER.split(s).forEach(e -> builder.add(parser.apply(e)));
+      return builder.build();
+    };
+  }
+
+  private static Duration parseDuration(String text) {
+    String s = text.trim();
+    if (s.startsWith("P") || s.startsWith("p")) {
+      try {
+        return Duration.parse(s);
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException(e.getMessage(), e);
+      }
+    }
+    int split = s.length();
+    while (split > 0 && Character.isLetter(s.charAt(split - 1))) {
+      split--;
+    }
+    long amount = Long.parseLong(s.substring(0, split).trim());
+    switch (s.substring(split).toLowerCase()) {
+    case "":
+    case "ms":
+      return Duration.ofMillis(amount);
+    case "s":
+      return Duration.ofSeconds(amount);
+    case "m":
+      return Duration.ofMinutes(amount);
+    case "h":
+      return Duration.ofHours(amount);
+    case "d":
+      return Duration.ofDays(amount);
+    default:
+      throw new IllegalArgumentException("Unknown duration unit: " + text);
+    }
+  }
+
+  private static class Change {
+    final ImmutableMap<String, String> old;
+    final ImmutableMap<String, String> now;
+
+    Change(ImmutableMap<String, String> old, ImmutableMap<String, String> now) {
+      this.old = old;
+      this.now = now;
+    }
+  }
+
+  /**
+   * Immutable values with the lazily parsed results. Parsed results are keyed by parser, then by key.
+   */
+  private static class Snapshot {
+    final ImmutableMap<String, String> values;
+    final Map<Function<String, ?>, Map<String, Object>> parsed = new ConcurrentHashMap<>();
+
+    Snapshot(ImmutableMap<String, String> values) {
+      this.values = values;
     }
   }
 }
@@ -0,0 +1,16 @@
+package xdean.jex.config;
+
+import java.util.Optional;
+
+/**
+ * Listen to a property's value change of {@link Config}, from local updates or file reloads.
+ */
+@FunctionalInterface
+public interface ConfigListener {
+  /**
+   * @param key the changed key
+   * @param oldValue empty if the property was added
+   * @param newValue empty if the property was removed
+   */
+  void changed(String key, Optional<String> oldValue, Optional<String> newValue);
+}
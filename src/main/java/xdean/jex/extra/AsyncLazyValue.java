@@ -0,0 +1,113 @@
+package xdean.jex.extra;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import xdean.jex.util.task.TaskPool;
+import xdean.jex.util.task.TaskPool.RejectPolicy;
+
+/**
+ * Lazy value calculated asynchronously. The calculation starts on the first {@link #get()} and at most one calculation
+ * runs at a time, a calculation requested after {@link #reset()} starts when the running one finishes. A successful
+ * result is kept until {@link #reset()}, a failed result is dropped so that the next {@link #get()} tries again.
+ *
+ * @see LazyValue
+ */
+public class AsyncLazyValue<T> {
+
+  /**
+   * Shared by lazy values. Never runs a calculation in the requesting thread, a rejected one fails the future.
+   */
+  static final TaskPool DEFAULT_POOL = TaskPool.builder("LazyValue-async").rejectPolicy(RejectPolicy.ABORT).build();
+
+  /**
+   * Calculate in a shared bounded pool. If the pool is full, the future fails with
+   * {@link java.util.concurrent.RejectedExecutionException} and the next {@link #get()} tries again.
+   */
+  public static <T> AsyncLazyValue<T> create(Supplier<T> supplier) {
+    return create(supplier, DEFAULT_POOL);
+  }
+
+  /**
+   * The calculation is started out of any lock, so even an executor running it in the calling thread only blocks that
+   * thread.
+   */
+
+  public static <T> AsyncLazyValue<T> create(Supplier<T> supplier, Executor executor) {
+    return new AsyncLazyValue<>(supplier, executor);
+  }
+
+  private final Supplier<T> supplier;
+  private final Executor executor;
+  /**
+   * The current result, null if not requested or reset.
+   */
+  private volatile CompletableFuture<T> future;
+  /**
+   * The last started calculation, even if reset. Guarded by this.
+   */
+  private CompletableFuture<T> last;
+
+  private AsyncLazyValue(Supplier<T> supplier, Executor executor) {
+    this.supplier = supplier;
+    this.executor = executor;
+  }
+
+  /**
+   * Get the value's future, start the calculation if not started.
+   */
+  public CompletableFuture<T> get() {
+    CompletableFuture<T> f = future;
+    if (f != null && !f.isCompletedExceptionally()) {
+      return f;
+    }
+    CompletableFuture<T> created;
+    CompletableFuture<T> previous;
+    synchronized (this) {
+      f = future;
+      if (f != null && !f.isCompletedExceptionally()) {
+        return f;
+      }
+      created = new CompletableFuture<>();
+      previous = last;
+      future = last = created;
+    }
+    // start out of the lock, other callers get the created future without waiting
+    if (previous == null) {
+      calculate(created);
+    } else {
+      previous.whenComplete((r, e) -> calculate(created));
+    }
+    return created;
+  }
+
+  /**
+   * If the value is calculated successfully.
+   */
+  public boolean isDone() {
+    CompletableFuture<T> f = future;
+    return f != null && f.isDone() && !f.isCompletedExceptionally();
+  }
+
+  /**
+   * Forget the value. A running calculation is not cancelled, but its result will not be kept.
+   */
+  public void reset() {
+    future = null;
+  }
+
+  private void calculate(CompletableFuture<T> result) {
+    try {
+      executor.execute(() -> {
+        try {
+          result.complete(supplier.get());
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+  }
+}
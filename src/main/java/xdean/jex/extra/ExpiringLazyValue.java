@@ -0,0 +1,119 @@
+package xdean.jex.extra;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lazy value which expires after a time to live. An expired value is calculated again in the calling thread.<br>
+ * With {@link #refreshAhead(Duration)}, a value close to expiry is refreshed in background while the current value is
+ * still returned, so that readers are not blocked.
+ *
+ * @see LazyValue
+ */
+@Slf4j
+public class ExpiringLazyValue<T> {
+
+  public static <T> ExpiringLazyValue<T> create(Supplier<T> supplier, Duration ttl) {
+    return new ExpiringLazyValue<>(supplier, ttl.toNanos());
+  }
+
+  private final Supplier<T> supplier;
+  private final long ttl;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private volatile long refreshAhead = -1;
+  private volatile Executor executor = AsyncLazyValue.DEFAULT_POOL;
+  private volatile Entry<T> entry;
+
+  private ExpiringLazyValue(Supplier<T> supplier, long ttl) {
+    if (ttl <= 0) {
+      throw new IllegalArgumentException("TTL must be positive.");
+    }
+    this.supplier = supplier;
+    this.ttl = ttl;
+  }
+
+  /**
+   * Refresh in background when the value expires within the given time.
+   */
+  public ExpiringLazyValue<T> refreshAhead(Duration ahead) {
+    this.refreshAhead = ahead.toNanos();
+    return this;
+  }
+
+  /**
+   * Executor to refresh ahead. Default is the pool of {@link AsyncLazyValue#create(Supplier)}, a refresh rejected by it
+   * is skipped and the current value is kept.
+   */
+  public ExpiringLazyValue<T> executor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  public T get() {
+    Entry<T> e = entry;
+    long now = System.nanoTime();
+    if (e == null || now - e.expireAt >= 0) {
+      synchronized (this) {
+        e = entry;
+        if (e == null || System.nanoTime() - e.expireAt >= 0) {
+          entry = e = calculate();
+        }
+      }
+    } else if (refreshAhead >= 0 && now - (e.expireAt - refreshAhead) >= 0) {
+      refreshAsync(e);
+    }
+    return e.value;
+  }
+
+  /**
+   * Forget the value, the next {@link #get()} will calculate again.
+   */
+  public void reset() {
+    entry = null;
+  }
+
+  private void refreshAsync(Entry<T> old) {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          Entry<T> e = calculate();
+          synchronized (this) {
+            // don't overwrite if reset or recalculated meanwhile
+            if (entry == old) {
+              entry = e;
+            }
+          }
+        } catch (Throwable t) {
+          log.warn("Fail to refresh, keep the old value until expired.", t);
+        } finally {
+          refreshing.set(false);
+        }
+      });
+    } catch (RuntimeException t) {
+      refreshing.set(false);
+      log.warn("Fail to schedule refresh.", t);
+    }
+  }
+
+  private Entry<T> calculate() {
+    T value = supplier.get();
+    return new Entry<>(value, System.nanoTime() + ttl);
+  }
+
+  private static class Entry<T> {
+    final T value;
+    final long expireAt;
+
+    Entry(T value, long expireAt) {
+      this.value = value;
+      this.expireAt = expireAt;
+    }
+  }
+}
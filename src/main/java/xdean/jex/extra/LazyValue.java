@@ -2,30 +2,78 @@ package xdean.jex.extra;
 
 import java.util.function.Supplier;
 
+/**
+ * Thread safe lazy value. The supplier is called at most once, and released after the value is calculated. To
+ * calculate again after {@link #reset()}, create it by {@link #resettable(Supplier)}, which keeps the supplier.
+ *
+ * @see AsyncLazyValue
+ * @see ExpiringLazyValue
+ */
 public class LazyValue<T> {
 
   public static <T> LazyValue<T> create(Supplier<T> supplier) {
-    return new LazyValue<>(supplier);
+    return new LazyValue<>(supplier, false);
   }
 
+  /**
+   * Create a lazy value which can be {@link #reset()}.
+   */
+  public static <T> LazyValue<T> resettable(Supplier<T> supplier) {
+    return new LazyValue<>(supplier, true);
+  }
+
+  private final boolean resettable;
+  /**
+   * Guarded by this, null after calculated if not resettable.
+   */
   private Supplier<T> creater;
-  private boolean calculated = false;
-  private T value = null;
+  /**
+   * Null means not calculated. The holder's final field makes the value safely published.
+   */
+  private volatile Holder<T> holder;
 
-  private LazyValue(Supplier<T> supplier) {
-    creater = supplier;
+  private LazyValue(Supplier<T> supplier, boolean resettable) {
+    this.creater = supplier;
+    this.resettable = resettable;
   }
 
   public T get() {
-    if (calculated == false) {
+    Holder<T> h = holder;
+    if (h == null) {
       synchronized (this) {
-        if (calculated == false) {
-          value = creater.get();
-          creater = null;
-          calculated = true;
+        h = holder;
+        if (h == null) {
+          holder = h = new Holder<>(creater.get());
+          if (!resettable) {
+            creater = null;
+          }
         }
       }
     }
-    return value;
+    return h.value;
+  }
+
+  public boolean isCalculated() {
+    return holder != null;
+  }
+
+  /**
+   * Forget the value, the next {@link #get()} will calculate again.
+   *
+   * @throws UnsupportedOperationException if not created by {@link #resettable(Supplier)}
+   */
+  public void reset() {
+    if (!resettable) {
+      throw new UnsupportedOperationException("Not resettable, create it by LazyValue.resettable");
+    }
+    holder = null;
+  }
+
+  private static class Holder<T> {
+    final T value;
+
+    Holder(T value) {
+      this.value = value;
+    }
   }
 }
@@ -1,24 +1,44 @@
 package xdean.jex.extra;
 
 import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import xdean.jex.util.lang.ExceptionUtil;
+import xdean.jex.util.lang.FinalizeSupport;
+import xdean.jex.util.string.Base64Util;
 import xdean.jex.util.string.StringUtil;
 
 /**
- * An URL who return the input string
- * 
+ * An URL who return the input string. Two modes:
+ * <ul>
+ * <li>{@code string:} the content is encoded in the URL itself. Good for small text.</li>
+ * <li>{@code memory:} the content is stored once in a registry and the URL only carries a short handle, see
+ * {@link #register(ByteBuffer)}. Streams read views of the content without copy. Good for big resources.</li>
+ * </ul>
+ *
  * @author XDean
  *
  */
 public class StringURL {
 
+  private static final String STRING = "string";
+  private static final String MEMORY = "memory";
+
+  private static final Map<String, ByteBuffer> REGISTRY = new ConcurrentHashMap<>();
+  private static final AtomicLong ID = new AtomicLong();
+
   static {
     URL.setURLStreamHandlerFactory(new StringURLStreamHandlerFactory());
   }
@@ -31,6 +51,133 @@ public class StringURL {
     return ExceptionUtil.uncheck(() -> new URL(createURLString(text)));
   }
 
+  /**
+   * Register the UTF-8 bytes of the text.
+   *
+   * @see #register(ByteBuffer)
+   */
+  public static Resource register(String text) {
+    return register(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Register the bytes without copy, don't modify them after.
+   *
+   * @see #register(ByteBuffer)
+   */
+  public static Resource register(byte[] content) {
+    return register(ByteBuffer.wrap(content));
+  }
+
+  /**
+   * Register the remaining content of the buffer without copy, it can be heap, direct or mapped. Don't modify the
+   * content after.
+   * <p>
+   * The content is removed from the registry when the returned resource is closed as many times as it's retained, or
+   * when the resource is garbage collected. Keep the resource as long as its URL is used.
+   * </p>
+   */
+  public static Resource register(ByteBuffer content) {
+    String id = Long.toString(ID.incrementAndGet(), 36);
+    REGISTRY.put(id, content.slice().asReadOnlyBuffer());
+    Resource resource = new Resource(id, content.remaining());
+    resource.registration = FinalizeSupport.register(resource, () -> REGISTRY.remove(id));
+    return resource;
+  }
+
+  /**
+   * Count of registered contents.
+   */
+  public static int getRegisteredCount() {
+    return REGISTRY.size();
+  }
+
+  /**
+   * A registered content, identified by a {@code memory:} URL.
+   */
+  public static class Resource implements AutoCloseable {
+    private final String id;
+    private final long size;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private volatile FinalizeSupport.Registration registration;
+
+    private Resource(String id, long size) {
+      this.id = id;
+      this.size = size;
+    }
+
+    public String getURLString() {
+      return MEMORY + ":" + id;
+    }
+
+    public URL getURL() {
+      return ExceptionUtil.uncheck(() -> new URL(getURLString()));
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Read only view of the content.
+     *
+     * @throws IllegalStateException if released
+     */
+    public ByteBuffer getBuffer() {
+      ByteBuffer buffer = REGISTRY.get(id);
+      if (buffer == null) {
+        throw new IllegalStateException("Resource released: " + getURLString());
+      }
+      return buffer.duplicate();
+    }
+
+    /**
+     * Increase the reference count, each retain needs a {@link #close()}.
+     *
+     * @throws IllegalStateException if released
+     */
+    public Resource retain() {
+      int count;
+      do {
+        count = refCount.get();
+        if (count <= 0) {
+          throw new IllegalStateException("Resource released: " + getURLString());
+        }
+      } while (!refCount.compareAndSet(count, count + 1));
+      return this;
+    }
+
+    /**
+     * Decrease the reference count, remove the content when it's 0.
+     */
+    @Override
+    public void close() {
+      int count;
+      do {
+        count = refCount.get();
+        if (count <= 0) {
+          return;
+        }
+      } while (!refCount.compareAndSet(count, count - 1));
+      if (count == 1) {
+        REGISTRY.remove(id);
+        FinalizeSupport.Registration r = registration;
+        if (r != null) {
+          r.cancel();
+        }
+      }
+    }
+
+    public boolean isReleased() {
+      return refCount.get() <= 0;
+    }
+
+    @Override
+    public String toString() {
+      return getURLString();
+    }
+  }
+
   private static class StringURLConnection extends URLConnection {
     public StringURLConnection(URL url) {
       super(url);
@@ -42,7 +189,98 @@ public class StringURL {
 
     @Override
     public InputStream getInputStream() throws IOException {
-      return new ByteArrayInputStream(StringUtil.decode(getURL().toString().substring(7)).getBytes());
+      String encoded = getURL().toString().substring(STRING.length() + 1);
+      ByteBuffer out = ByteBuffer.allocate(encoded.length() / 4 * 3 + 3);
+      Base64Util.decoder().decode(ByteBuffer.wrap(encoded.getBytes(StandardCharsets.ISO_8859_1)), out, true);
+      return new ByteArrayInputStream(out.array(), 0, out.position());
+    }
+  }
+
+  private static class MemoryURLConnection extends URLConnection {
+    public MemoryURLConnection(URL url) {
+      super(url);
+    }
+
+    @Override
+    public void connect() throws IOException {
+    }
+
+    @Override
+    public long getContentLengthLong() {
+      ByteBuffer buffer = REGISTRY.get(url.getPath());
+      return buffer == null ? -1 : buffer.remaining();
+    }
+
+    @Override
+    public int getContentLength() {
+      long length = getContentLengthLong();
+      return length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      ByteBuffer buffer = REGISTRY.get(url.getPath());
+      if (buffer == null) {
+        throw new FileNotFoundException("Resource not registered or released: " + url);
+      }
+      return new ByteBufferInputStream(buffer.duplicate());
+    }
+  }
+
+  /**
+   * Read a view of the buffer.
+   */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+    private int mark;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skip);
+      return skip;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+      mark = buffer.position();
+    }
+
+    @Override
+    public synchronized void reset() {
+      buffer.position(mark);
     }
   }
 
@@ -54,11 +292,21 @@ public class StringURL {
       }
     };
 
+    URLStreamHandler memoryHandler = new URLStreamHandler() {
+      @Override
+      protected URLConnection openConnection(URL url) throws IOException {
+        return new MemoryURLConnection(url);
+      }
+    };
+
     @Override
     public URLStreamHandler createURLStreamHandler(String protocol) {
-      if ("string".equals(protocol)) {
+      if (STRING.equals(protocol)) {
         return streamHandler;
       }
+      if (MEMORY.equals(protocol)) {
+        return memoryHandler;
+      }
       return null;
     }
   }
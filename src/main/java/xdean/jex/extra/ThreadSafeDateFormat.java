@@ -7,24 +7,58 @@ import java.text.NumberFormat;
 import java.text.ParseException;
 import java.text.ParsePosition;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
-public class ThreadSafeDateFormat extends DateFormat{
-  ThreadLocal<DateFormat> format;
+import xdean.jex.util.time.DateTimeFormat;
+
+/**
+ * {@link DateFormat} with a delegate per thread. Setters apply to all threads, the delegates are recreated lazily.
+ *
+ * <p>
+ * Prefer {@link DateTimeFormat} which is immutable and much faster for new code.
+ * </p>
+ *
+ * @author XDean
+ */
+public class ThreadSafeDateFormat extends DateFormat {
+
+  private final Supplier<DateFormat> factory;
+  private final ThreadLocal<Local> format = ThreadLocal.withInitial(Local::new);
+  /**
+   * Setter name to the setting, applied in order to each new delegate. Copy on write.
+   */
+  private volatile Map<String, Consumer<DateFormat>> settings = Collections.emptyMap();
+  private volatile int version;
 
   public ThreadSafeDateFormat(Supplier<DateFormat> factory) {
-    format = new ThreadLocal<DateFormat>() {
-      @Override
-      protected DateFormat initialValue() {
-        return factory.get();
-      }
-    };
+    this.factory = factory;
   }
 
   private DateFormat get() {
-    return format.get();
+    Local local = format.get();
+    int v = version;
+    if (local.format == null || local.version != v) {
+      DateFormat f = factory.get();
+      settings.values().forEach(s -> s.accept(f));
+      local.format = f;
+      local.version = v;
+    }
+    return local.format;
+  }
+
+  private synchronized void set(String name, Consumer<DateFormat> setting) {
+    Map<String, Consumer<DateFormat>> map = new LinkedHashMap<>(settings);
+    // keep the latest order, e.g. setTimeZone after setCalendar
+    map.remove(name);
+    map.put(name, setting);
+    settings = map;
+    version++;
   }
 
   @Override
@@ -59,7 +93,7 @@ public class ThreadSafeDateFormat extends DateFormat{
 
   @Override
   public void setCalendar(Calendar newCalendar) {
-    get().setCalendar(newCalendar);
+    set("calendar", f -> f.setCalendar((Calendar) newCalendar.clone()));
   }
 
   @Override
@@ -69,7 +103,7 @@ public class ThreadSafeDateFormat extends DateFormat{
 
   @Override
   public void setNumberFormat(NumberFormat newNumberFormat) {
-    get().setNumberFormat(newNumberFormat);
+    set("numberFormat", f -> f.setNumberFormat((NumberFormat) newNumberFormat.clone()));
   }
 
   @Override
@@ -79,7 +113,7 @@ public class ThreadSafeDateFormat extends DateFormat{
 
   @Override
   public void setTimeZone(TimeZone zone) {
-    get().setTimeZone(zone);
+    set("timeZone", f -> f.setTimeZone((TimeZone) zone.clone()));
   }
 
   @Override
@@ -89,11 +123,16 @@ public class ThreadSafeDateFormat extends DateFormat{
 
   @Override
   public void setLenient(boolean lenient) {
-    get().setLenient(lenient);
+    set("lenient", f -> f.setLenient(lenient));
   }
 
   @Override
   public boolean isLenient() {
     return get().isLenient();
   }
+
+  private static class Local {
+    DateFormat format;
+    int version;
+  }
 }
@@ -0,0 +1,245 @@
+package xdean.jex.extra.collection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Growable list of primitive longs.
+ *
+ * @author XDean
+ * @see IntList
+ */
+public class LongList implements RandomAccess, Cloneable, Serializable {
+
+  public static LongList create() {
+    return new LongList();
+  }
+
+  public static LongList create(int initCapacity) {
+    return new LongList(initCapacity);
+  }
+
+  public static LongList create(long[] initArray) {
+    return new LongList(initArray);
+  }
+
+  private static final int DEFAULT_CAPACITY = 5;
+
+  private transient long[] elementData;
+  private transient int size;
+
+  protected LongList() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  protected LongList(int initCapacity) {
+    elementData = new long[initCapacity];
+  }
+
+  protected LongList(long[] initArray) {
+    size = initArray.length;
+    elementData = Arrays.copyOf(initArray, size);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(long l) {
+    return indexOf(l) != -1;
+  }
+
+  public long[] toArray() {
+    return Arrays.copyOf(elementData, size);
+  }
+
+  public long[] getArray() {
+    return elementData;
+  }
+
+  public boolean add(long l) {
+    ensureCapacity(size + 1);
+    elementData[size++] = l;
+    return true;
+  }
+
+  public void add(int index, long element) {
+    rangeCheckForAdd(index);
+    ensureCapacity(size + 1);
+    System.arraycopy(elementData, index, elementData, index + 1, size - index);
+    elementData[index] = element;
+    size++;
+  }
+
+  public boolean addAll(long[] ls) {
+    int numNew = ls.length;
+    ensureCapacity(size + numNew);
+    System.arraycopy(ls, 0, elementData, size, numNew);
+    size += numNew;
+    return numNew != 0;
+  }
+
+  public long removeIndex(int index) {
+    rangeCheck(index);
+    long oldValue = elementData[index];
+    int numMoved = size - index - 1;
+    if (numMoved > 0) {
+      System.arraycopy(elementData, index + 1, elementData, index, numMoved);
+    }
+    size--;
+    return oldValue;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public long get(int index) {
+    rangeCheck(index);
+    return elementData[index];
+  }
+
+  public long set(int index, long element) {
+    rangeCheck(index);
+    long oldValue = elementData[index];
+    elementData[index] = element;
+    return oldValue;
+  }
+
+  public int indexOf(long l) {
+    for (int idx = 0; idx < size; idx++) {
+      if (l == elementData[idx]) {
+        return idx;
+      }
+    }
+    return -1;
+  }
+
+  public int lastIndexOf(long l) {
+    for (int idx = size - 1; idx >= 0; idx--) {
+      if (l == elementData[idx]) {
+        return idx;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The list must be sorted.
+   *
+   * @see Arrays#binarySearch(long[], int, int, long)
+   */
+  public int binarySearch(long key) {
+    return Arrays.binarySearch(elementData, 0, size, key);
+  }
+
+  public void forEach(LongConsumer action) {
+    Objects.requireNonNull(action);
+    final long[] elementData = this.elementData;
+    final int size = this.size;
+    for (int i = 0; i < size; i++) {
+      action.accept(elementData[i]);
+    }
+  }
+
+  public LongStream stream() {
+    return Arrays.stream(elementData, 0, size);
+  }
+
+  public void sort() {
+    Arrays.sort(elementData, 0, size);
+  }
+
+  public void trimToSize() {
+    if (size < elementData.length) {
+      elementData = Arrays.copyOf(elementData, size);
+    }
+  }
+
+  @Override
+  public LongList clone() {
+    return new LongList(toArray());
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity > elementData.length) {
+      int newCapacity = Math.max(minCapacity, elementData.length + (elementData.length >> 1));
+      elementData = Arrays.copyOf(elementData, newCapacity);
+    }
+  }
+
+  private void rangeCheck(int index) {
+    if (index >= size || index < 0) {
+      throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+  }
+
+  private void rangeCheckForAdd(int index) {
+    if (index > size || index < 0) {
+      throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+  }
+
+  private String outOfBoundsMsg(int index) {
+    return "Index: " + index + ", Size: " + size;
+  }
+
+  private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+    s.defaultWriteObject();
+    s.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      s.writeLong(elementData[i]);
+    }
+  }
+
+  private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
+    s.defaultReadObject();
+    size = s.readInt();
+    elementData = new long[size];
+    for (int i = 0; i < size; i++) {
+      elementData[i] = s.readLong();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "LongList: " + Arrays.toString(toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 1;
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + Long.hashCode(elementData[i]);
+    }
+    return 31 * result + size;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    LongList other = (LongList) obj;
+    if (size != other.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (elementData[i] != other.elementData[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
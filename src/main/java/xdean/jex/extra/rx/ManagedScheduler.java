@@ -0,0 +1,132 @@
+package xdean.jex.extra.rx;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * A handle of a named shared pool created by {@link RxUtil}. The pool is shut down when all its handles are closed.
+ * Tasks are counted when they are submitted, so the metrics work for any kind of pool.
+ *
+ * @author XDean
+ * @see RxUtil#sharedScheduler(String, int)
+ * @see RxUtil#workStealingScheduler(String, int)
+ * @see RxUtil#virtualThreadScheduler(String)
+ */
+public class ManagedScheduler extends Scheduler implements AutoCloseable {
+
+  private final Pool pool;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  ManagedScheduler(Pool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @throws IllegalStateException if this handle is closed
+   */
+  @Override
+  public Worker createWorker() {
+    if (closed.get()) {
+      throw new IllegalStateException("Scheduler " + getName() + " is closed.");
+    }
+    return pool.scheduler.createWorker();
+  }
+
+  public String getName() {
+    return pool.name;
+  }
+
+  /**
+   * Count of tasks submitted but not started.
+   */
+  public int getQueueSize() {
+    return pool.queued.get();
+  }
+
+  /**
+   * Count of tasks running.
+   */
+  public int getActiveCount() {
+    return pool.active.get();
+  }
+
+  /**
+   * Release this handle. Closing a handle more than once has no effect.
+   */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      pool.release();
+    }
+  }
+
+  public boolean isClosed() {
+    return closed.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ManagedScheduler[%s, queue=%d, active=%d]", getName(), getQueueSize(), getActiveCount());
+  }
+
+  static class Pool implements Executor {
+    final String name;
+    final String kind;
+    final ExecutorService executor;
+    final Scheduler scheduler;
+    final Map<String, Pool> registry;
+    final AtomicInteger queued = new AtomicInteger();
+    final AtomicInteger active = new AtomicInteger();
+    int refCount;
+
+    Pool(String name, String kind, ExecutorService executor, Map<String, Pool> registry) {
+      this.name = name;
+      this.kind = kind;
+      this.executor = executor;
+      this.registry = registry;
+      this.scheduler = Schedulers.from(this);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      queued.incrementAndGet();
+      try {
+        executor.execute(() -> {
+          queued.decrementAndGet();
+          active.incrementAndGet();
+          try {
+            command.run();
+          } finally {
+            active.decrementAndGet();
+          }
+        });
+      } catch (RuntimeException e) {
+        queued.decrementAndGet();
+        throw e;
+      }
+    }
+
+    /**
+     * Must be called with the registry locked.
+     */
+    ManagedScheduler acquire() {
+      refCount++;
+      return new ManagedScheduler(this);
+    }
+
+    void release() {
+      synchronized (registry) {
+        if (--refCount == 0) {
+          registry.remove(name, this);
+          executor.shutdown();
+        }
+      }
+    }
+  }
+}
@@ -1,29 +1,109 @@
 package xdean.jex.extra.rx;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import rx.Observable;
 import rx.Scheduler;
 import rx.internal.util.RxThreadFactory;
 import rx.schedulers.Schedulers;
 import xdean.jex.extra.Pair;
+import xdean.jex.extra.rx.ManagedScheduler.Pool;
 import xdean.jex.util.lang.FinalizeSupport;
+import xdean.jex.util.task.ExecutorUtil;
 
 public class RxUtil {
+
+  private static final Map<String, Pool> SHARED_POOLS = new HashMap<>();
+
   /**
-   * Create a fixed size scheduler without manual dispose. The scheduler will release when it is useless.
+   * Create a fixed size scheduler without manual dispose. The scheduler will release when it is useless. Idle threads
+   * exit after 60 seconds, so threads don't leak even if the scheduler is not collected in time.
    * 
    * @param size
    * @return
+   * @see #sharedScheduler(String, int)
    */
   public static Scheduler fixedSizeScheduler(int size) {
-    ExecutorService pool = Executors.newFixedThreadPool(size, new RxThreadFactory("FixedSizeScheduler-"));
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new RxThreadFactory("FixedSizeScheduler-"));
+    pool.allowCoreThreadTimeOut(true);
     Scheduler scheduler = Schedulers.from(pool);
     FinalizeSupport.finalize(scheduler, () -> pool.shutdown());
     return scheduler;
   }
 
+  /**
+   * Get a handle of the named fixed size pool, create it if absent. The pool is shut down when all handles are
+   * closed.
+   *
+   * @param name pool name
+   * @param size thread count, only used when create
+   * @return a new handle, close it when it's useless
+   * @throws IllegalArgumentException if the name is used by another kind of pool
+   */
+  public static ManagedScheduler sharedScheduler(String name, int size) {
+    return shared(name, "fixed", () -> {
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          new RxThreadFactory(name + "-"));
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    });
+  }
+
+  /**
+   * Get a handle of the named work-stealing ({@link ForkJoinPool}) pool, create it if absent.
+   *
+   * @param name pool name
+   * @param parallelism only used when create
+   * @see #sharedScheduler(String, int)
+   */
+  public static ManagedScheduler workStealingScheduler(String name, int parallelism) {
+    return shared(name, "work-stealing", () -> newWorkStealingPool(name, parallelism));
+  }
+
+  /**
+   * Get a handle of the named virtual-thread-per-task pool, create it if absent. If the JVM doesn't support virtual
+   * threads, the pool is a work-stealing pool with parallelism of processor count instead.
+   *
+   * @param name pool name
+   * @see #sharedScheduler(String, int)
+   * @see ExecutorUtil#isVirtualThreadSupported()
+   */
+  public static ManagedScheduler virtualThreadScheduler(String name) {
+    return shared(name, "virtual", () -> ExecutorUtil.newVirtualThreadExecutor()
+        .orElseGet(() -> newWorkStealingPool(name, Runtime.getRuntime().availableProcessors())));
+  }
+
+  private static ExecutorService newWorkStealingPool(String name, int parallelism) {
+    return new ForkJoinPool(parallelism, p -> {
+      ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+      t.setName(name + "-" + t.getPoolIndex());
+      t.setDaemon(true);
+      return t;
+    }, null, true);
+  }
+
+  private static ManagedScheduler shared(String name, String kind, Supplier<ExecutorService> factory) {
+    synchronized (SHARED_POOLS) {
+      Pool pool = SHARED_POOLS.get(name);
+      if (pool == null) {
+        pool = new Pool(name, kind, factory.get(), SHARED_POOLS);
+        SHARED_POOLS.put(name, pool);
+      } else if (!pool.kind.equals(kind)) {
+        throw new IllegalArgumentException(String.format("Pool %s is %s, not %s.", name, pool.kind, kind));
+      }
+      return pool.acquire();
+    }
+  }
+
   /**
    * 
    * @param from include
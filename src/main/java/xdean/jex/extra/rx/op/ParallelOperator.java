@@ -9,6 +9,8 @@ import lombok.experimental.FieldDefaults;
 import rx.Observable.Operator;
 import rx.Scheduler;
 import rx.Subscriber;
+import xdean.jex.util.metrics.Counter;
+import xdean.jex.util.metrics.Metrics;
 
 /**
  * An operator to do tasks on specified scheduler and wait for all tasks completed.
@@ -20,6 +22,8 @@ import rx.Subscriber;
 @AllArgsConstructor
 public class ParallelOperator<T> implements Operator<T, T> {
 
+  private static final Counter IN_FLIGHT = Metrics.counter("rx.parallel.inflight");
+
   Scheduler scheduler;
 
   @Override
@@ -45,8 +49,13 @@ public class ParallelOperator<T> implements Operator<T, T> {
     @Override
     public void onNext(T next) {
       endLeft.incrementAndGet();
+      IN_FLIGHT.increment();
       scheduler.createWorker().schedule(() -> {
-        actual.onNext(next);
+        try {
+          actual.onNext(next);
+        } finally {
+          IN_FLIGHT.decrement();
+        }
         if (endLeft.decrementAndGet() == 0 && completeThread != null) {
           LockSupport.unpark(completeThread);
           completeThread = null;
@@ -9,15 +9,29 @@ import io.reactivex.disposables.Disposable;
 import io.reactivex.internal.subscriptions.SubscriptionHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import xdean.jex.util.metrics.Metrics;
+
 public class RandomOperator<T> {
 
   private static final int DEFAULT_CACHE = 128;
+  /**
+   * Live subscriptions, weakly held so that an abandoned one is not leaked.
+   */
+  private static final Set<Buffered> LIVE = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+  static {
+    Metrics.gauge("rx.random.buffered", RandomOperator::buffered);
+  }
 
   public static <T> ObservableOperator<T, T> observable() {
     return observable(DEFAULT_CACHE);
@@ -35,10 +49,37 @@ public class RandomOperator<T> {
     return actual -> new RandomSubscriber<T>(actual, cacheSize);
   }
 
-  private static final class RandomObserver<T> implements Observer<T> {
+  /**
+   * Count of elements buffered by all live subscriptions, evaluated only when the gauge is read.
+   */
+  private static long buffered() {
+    long sum = 0;
+    synchronized (LIVE) {
+      Iterator<Buffered> it = LIVE.iterator();
+      while (it.hasNext()) {
+        Buffered b = it.next();
+        if (b.isDone()) {
+          it.remove();
+        } else {
+          sum += b.buffered();
+        }
+      }
+    }
+    return sum;
+  }
+
+  private interface Buffered {
+    int buffered();
+
+    boolean isDone();
+  }
+
+  private static final class RandomObserver<T> implements Observer<T>, Buffered {
     int cacheSize;
     List<T> elements;
     Observer<? super T> actual;
+    Disposable d;
+    volatile boolean done;
 
     public RandomObserver(Observer<? super T> actual, int cacheSize) {
       this.actual = actual;
@@ -48,6 +89,8 @@ public class RandomOperator<T> {
 
     @Override
     public void onSubscribe(Disposable d) {
+      this.d = d;
+      LIVE.add(this);
       actual.onSubscribe(d);
     }
 
@@ -61,15 +104,32 @@ public class RandomOperator<T> {
 
     @Override
     public void onError(Throwable e) {
+      release();
       actual.onError(e);
     }
 
     @Override
     public void onComplete() {
       emitAll();
+      release();
       actual.onComplete();
     }
 
+    @Override
+    public int buffered() {
+      return elements.size();
+    }
+
+    @Override
+    public boolean isDone() {
+      return done || d.isDisposed();
+    }
+
+    private void release() {
+      done = true;
+      LIVE.remove(this);
+    }
+
     private void emitOne() {
       actual.onNext(elements.remove((int) (Math.random() * elements.size())));
     }
@@ -81,11 +141,13 @@ public class RandomOperator<T> {
     }
   }
 
-  private static final class RandomSubscriber<T> extends AtomicLong implements FlowableSubscriber<T>, Subscription {
+  private static final class RandomSubscriber<T> extends AtomicLong
+      implements FlowableSubscriber<T>, Subscription, Buffered {
     int cacheSize;
     List<T> elements;
     Subscriber<? super T> actual;
     Subscription s;
+    volatile boolean done;
 
     public RandomSubscriber(Subscriber<? super T> actual, int cacheSize) {
       elements = new ArrayList<>(cacheSize);
@@ -97,6 +159,7 @@ public class RandomOperator<T> {
     public void onSubscribe(Subscription s) {
       if (SubscriptionHelper.validate(this.s, s)) {
         this.s = s;
+        LIVE.add(this);
         actual.onSubscribe(this);
       }
     }
@@ -114,15 +177,32 @@ public class RandomOperator<T> {
 
     @Override
     public void onError(Throwable e) {
+      release();
       actual.onError(e);
     }
 
     @Override
     public void onComplete() {
       emitAll();
+      release();
       actual.onComplete();
     }
 
+    @Override
+    public int buffered() {
+      return elements.size();
+    }
+
+    @Override
+    public boolean isDone() {
+      return done;
+    }
+
+    private void release() {
+      done = true;
+      LIVE.remove(this);
+    }
+
     @Override
     public void request(long n) {
       if (add(this, n) == 0) {
@@ -132,6 +212,7 @@ public class RandomOperator<T> {
 
     @Override
     public void cancel() {
+      release();
       s.cancel();
     }
 
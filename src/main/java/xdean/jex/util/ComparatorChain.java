@@ -0,0 +1,150 @@
+package xdean.jex.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Multi-key comparator compiled from a {@link Builder}. All keys are compared in one loop, primitive keys are never
+ * boxed.
+ *
+ * <pre>
+ * <code>Comparator&lt;Person&gt; c = ComparatorUtil.&lt;Person&gt; chain()
+ *     .comparingInt(Person::getAge).reversed()
+ *     .comparing(Person::getName)
+ *     .build();</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see ComparatorUtil#chain()
+ */
+public final class ComparatorChain<T> implements Comparator<T> {
+
+  public static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  private final Key<T>[] keys;
+  private final boolean[] reversed;
+
+  private ComparatorChain(Key<T>[] keys, boolean[] reversed) {
+    this.keys = keys;
+    this.reversed = reversed;
+  }
+
+  @Override
+  public int compare(T a, T b) {
+    for (int i = 0; i < keys.length; i++) {
+      int c = keys[i].compare(a, b);
+      if (c != 0) {
+        return reversed[i] ? (c > 0 ? -1 : 1) : c;
+      }
+    }
+    return 0;
+  }
+
+  private static abstract class Key<T> {
+    abstract int compare(T a, T b);
+  }
+
+  public static class Builder<T> {
+    private final List<Key<T>> keys = new ArrayList<>();
+    private final List<Boolean> reversed = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    public Builder<T> comparingInt(ToIntFunction<? super T> key) {
+      return add(new Key<T>() {
+        @Override
+        int compare(T a, T b) {
+          return Integer.compare(key.applyAsInt(a), key.applyAsInt(b));
+        }
+      });
+    }
+
+    public Builder<T> comparingLong(ToLongFunction<? super T> key) {
+      return add(new Key<T>() {
+        @Override
+        int compare(T a, T b) {
+          return Long.compare(key.applyAsLong(a), key.applyAsLong(b));
+        }
+      });
+    }
+
+    public Builder<T> comparingDouble(ToDoubleFunction<? super T> key) {
+      return add(new Key<T>() {
+        @Override
+        int compare(T a, T b) {
+          return Double.compare(key.applyAsDouble(a), key.applyAsDouble(b));
+        }
+      });
+    }
+
+    public <U extends Comparable<? super U>> Builder<T> comparing(Function<? super T, ? extends U> key) {
+      return add(new Key<T>() {
+        @Override
+        int compare(T a, T b) {
+          return key.apply(a).compareTo(key.apply(b));
+        }
+      });
+    }
+
+    public <U> Builder<T> comparing(Function<? super T, ? extends U> key, Comparator<? super U> comparator) {
+      return add(new Key<T>() {
+        @Override
+        int compare(T a, T b) {
+          return comparator.compare(key.apply(a), key.apply(b));
+        }
+      });
+    }
+
+    /**
+     * Compare by the comparator, e.g. {@link ComparatorUtil#startWith(Object...)}.
+     */
+    public Builder<T> then(Comparator<? super T> comparator) {
+      return add(new Key<T>() {
+        @Override
+        int compare(T a, T b) {
+          return comparator.compare(a, b);
+        }
+      });
+    }
+
+    /**
+     * Reverse the order of the last added key.
+     *
+     * @throws IllegalStateException if no key added
+     */
+    public Builder<T> reversed() {
+      if (keys.isEmpty()) {
+        throw new IllegalStateException("No key to reverse.");
+      }
+      int last = reversed.size() - 1;
+      reversed.set(last, !reversed.get(last));
+      return this;
+    }
+
+    public ComparatorChain<T> build() {
+      int n = keys.size();
+      @SuppressWarnings("unchecked")
+      Key<T>[] k = (Key<T>[]) new Key<?>[n];
+      boolean[] r = new boolean[n];
+      for (int i = 0; i < n; i++) {
+        k[i] = keys.get(i);
+        r[i] = reversed.get(i);
+      }
+      return new ComparatorChain<>(k, r);
+    }
+
+    private Builder<T> add(Key<T> key) {
+      keys.add(key);
+      reversed.add(false);
+      return this;
+    }
+  }
+}
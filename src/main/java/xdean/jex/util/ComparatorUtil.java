@@ -3,24 +3,47 @@ package xdean.jex.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
-import com.google.common.collect.Lists;
 
 public class ComparatorUtil {
 
+  /**
+   * Max range of int values to use an array as rank table.
+   */
+  private static final int SMALL_DOMAIN = 1024;
+
+  /**
+   * The elements are put first in the order, others are equal after them.
+   */
   @SafeVarargs
   public static <T> Comparator<T> startWith(T... elements) {
-    List<T> list = Lists.reverse(Arrays.asList(elements));
-    return (a, b) -> list.indexOf(b) - list.indexOf(a);
+    // the last occurrence of a duplicated element decides
+    int n = elements.length;
+    RankTable table = RankTable.of(elements, i -> n - 1 - i, false);
+    return (a, b) -> Integer.compare(table.rank(b), table.rank(a));
   }
 
+  /**
+   * The elements are put last in the order, others are equal before them.
+   */
   @SafeVarargs
   public static <T> Comparator<T> endWith(T... elements) {
-    List<T> list = Arrays.asList(elements);
-    return (a, b) -> list.indexOf(a) - list.indexOf(b);
+    // the first occurrence of a duplicated element decides
+    RankTable table = RankTable.of(elements, i -> i, true);
+    return (a, b) -> Integer.compare(table.rank(a), table.rank(b));
+  }
+
+  /**
+   * @see ComparatorChain
+   */
+  public static <T> ComparatorChain.Builder<T> chain() {
+    return ComparatorChain.builder();
   }
 
   @SafeVarargs
@@ -44,4 +67,71 @@ public class ComparatorUtil {
       return (a, b) -> comp.compare(map.getOrDefault(a, a), map.getOrDefault(b, b));
     }
   }
+
+  /**
+   * Rank of each element, -1 for others. Lookup without boxing for enums and small int domains.
+   */
+  private static abstract class RankTable {
+    abstract int rank(Object o);
+
+    static RankTable of(Object[] elements, IntUnaryOperator rankOfIndex, boolean firstWins) {
+      int n = elements.length;
+      if (n > 0 && Arrays.stream(elements).allMatch(e -> e instanceof Enum)) {
+        Class<?> type = ((Enum<?>) elements[0]).getDeclaringClass();
+        if (Arrays.stream(elements).allMatch(e -> ((Enum<?>) e).getDeclaringClass() == type)) {
+          int[] ranks = new int[type.getEnumConstants().length];
+          Arrays.fill(ranks, -1);
+          for (int i = 0; i < n; i++) {
+            int ordinal = ((Enum<?>) elements[i]).ordinal();
+            if (!firstWins || ranks[ordinal] == -1) {
+              ranks[ordinal] = rankOfIndex.applyAsInt(i);
+            }
+          }
+          return new RankTable() {
+            @Override
+            int rank(Object o) {
+              return o instanceof Enum && ((Enum<?>) o).getDeclaringClass() == type ? ranks[((Enum<?>) o).ordinal()] : -1;
+            }
+          };
+        }
+      }
+      if (n > 0 && Arrays.stream(elements).allMatch(e -> e instanceof Integer)) {
+        int min = Arrays.stream(elements).mapToInt(e -> (Integer) e).min().getAsInt();
+        int max = Arrays.stream(elements).mapToInt(e -> (Integer) e).max().getAsInt();
+        if ((long) max - min < SMALL_DOMAIN) {
+          int[] ranks = new int[max - min + 1];
+          Arrays.fill(ranks, -1);
+          for (int i = 0; i < n; i++) {
+            int index = (Integer) elements[i] - min;
+            if (!firstWins || ranks[index] == -1) {
+              ranks[index] = rankOfIndex.applyAsInt(i);
+            }
+          }
+          return new RankTable() {
+            @Override
+            int rank(Object o) {
+              if (o instanceof Integer) {
+                int v = (Integer) o;
+                return v >= min && v <= max ? ranks[v - min] : -1;
+              }
+              return -1;
+            }
+          };
+        }
+      }
+      Map<Object, Integer> ranks = new HashMap<>();
+      for (int i = 0; i < n; i++) {
+        if (!firstWins || !ranks.containsKey(elements[i])) {
+          ranks.put(elements[i], rankOfIndex.applyAsInt(i));
+        }
+      }
+      return new RankTable() {
+        @Override
+        int rank(Object o) {
+          Integer r = ranks.get(o);
+          return r == null ? -1 : r;
+        }
+      };
+    }
+  }
 }
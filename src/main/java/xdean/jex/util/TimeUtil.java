@@ -2,24 +2,32 @@ package xdean.jex.util;
 
 import static xdean.jex.util.function.FunctionAdapter.supplierToRunnable;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
-import xdean.jex.util.cache.CacheUtil;
-
-import com.google.common.base.Stopwatch;
+import xdean.jex.util.time.LatencyTimer;
 
+/**
+ * Simple timing in milliseconds.
+ *
+ * @see LatencyTimer
+ */
 public class TimeUtil {
+
+  private static final Map<Object, LongAdder> SERIES_TOTAL = Collections.synchronizedMap(new WeakHashMap<>());
+
   public static void timeThen(Runnable r, Consumer<Long> then) {
-    Stopwatch s = getShareStopwatch();
-    s.reset();
-    s.start();
+    long start = System.nanoTime();
     r.run();
-    s.stop();
+    long elapsed = System.nanoTime() - start;
     if (then != null) {
-      then.accept(s.elapsed(TimeUnit.MILLISECONDS));
+      then.accept(TimeUnit.NANOSECONDS.toMillis(elapsed));
     }
   }
 
@@ -42,16 +50,13 @@ public class TimeUtil {
    * @param then (this time, total time) -> {...}
    */
   public static void seriesTimeThen(Object uniqueKey, Runnable r, BiConsumer<Long, Long> then) {
-    Stopwatch total = CacheUtil.cache(TimeUtil.class, uniqueKey, () -> Stopwatch.createUnstarted());
-    Stopwatch temp = getShareStopwatch();
-    temp.reset();
-    temp.start();
-    total.start();
+    LongAdder total = SERIES_TOTAL.computeIfAbsent(uniqueKey, k -> new LongAdder());
+    long start = System.nanoTime();
     r.run();
-    temp.stop();
-    total.stop();
+    long elapsed = System.nanoTime() - start;
+    total.add(elapsed);
     if (then != null) {
-      then.accept(temp.elapsed(TimeUnit.MILLISECONDS), total.elapsed(TimeUnit.MILLISECONDS));
+      then.accept(TimeUnit.NANOSECONDS.toMillis(elapsed), TimeUnit.NANOSECONDS.toMillis(total.sum()));
     }
   }
 
@@ -66,9 +71,4 @@ public class TimeUtil {
   public static <T> T seriesTimeThen(Supplier<T> s, BiConsumer<Long, Long> then) {
     return seriesTimeThen(s, s, then);
   }
-
-  private static Stopwatch getShareStopwatch() {
-    Stopwatch share = CacheUtil.cache(TimeUtil.class, Thread.currentThread(), () -> Stopwatch.createUnstarted());
-    return share.isRunning() ? Stopwatch.createUnstarted() : share;
-  }
 }
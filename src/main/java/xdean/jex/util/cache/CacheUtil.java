@@ -7,11 +7,15 @@ import java.util.WeakHashMap;
 import java.util.function.Supplier;
 
 import xdean.jex.util.collection.MapUtil;
+import xdean.jex.util.metrics.Counter;
+import xdean.jex.util.metrics.Metrics;
 
 @SuppressWarnings("unchecked")
 public class CacheUtil {
 
   private static final Map<Class<?>, Map<Object, Map<Object, Object>>> CACHE_MAP = createMap();
+  private static final Counter HIT = Metrics.counter("cache.hit");
+  private static final Counter MISS = Metrics.counter("cache.miss");
 
   public static <V> V cache(Object key, Supplier<V> factory) {
     return cache(key.getClass(), key, factory);
@@ -20,8 +24,10 @@ public class CacheUtil {
   public static <V> V cache(Object owner, Object key, Supplier<V> factory) {
     Map<Object, Object> map = getMap(owner);
     if (map.containsKey(key)) {
+      HIT.increment();
       return (V) map.get(key);
     }
+    MISS.increment();
     V v = factory.get();
     map.put(key, v);
     return v;
@@ -1,41 +1,56 @@
 package xdean.jex.util.collection;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Deque;
 import java.util.List;
 import java.util.function.Function;
 
 import rx.Observable;
+import rx.observables.SyncOnSubscribe;
 
+/**
+ * Tree traversal. The results honor backpressure and unsubscription, children are only got when their parent is
+ * emitted.
+ */
 public class TraversalUtil {
   public static <T> Observable<T> deepTraversal(T root, Function<T, Iterable<T>> getChildren) {
-    return Observable.unsafeCreate(s -> {
-      List<T> list = new LinkedList<>();
-      List<T> bufferList = new ArrayList<>();
-      list.add(root);
-      s.onStart();
-      while (list.isEmpty() == false) {
-        T remove = list.remove(0);
-        s.onNext(remove);
-        getChildren.apply(remove).forEach(bufferList::add);
-        list.addAll(0, bufferList);
-        bufferList.clear();
-      }
-      s.onCompleted();
-    });
+    return Observable.create(SyncOnSubscribe.<Deque<T>, T> createSingleState(
+        () -> {
+          Deque<T> deque = new ArrayDeque<>();
+          deque.push(root);
+          return deque;
+        },
+        (deque, observer) -> {
+          if (deque.isEmpty()) {
+            observer.onCompleted();
+            return;
+          }
+          T remove = deque.pop();
+          observer.onNext(remove);
+          List<T> children = new ArrayList<>();
+          getChildren.apply(remove).forEach(children::add);
+          for (int i = children.size() - 1; i >= 0; i--) {
+            deque.push(children.get(i));
+          }
+        }));
   }
 
   public static <T> Observable<T> wideTraversal(T root, Function<T, Iterable<T>> getChildren) {
-    return Observable.unsafeCreate(s -> {
-      List<T> list = new LinkedList<>();
-      list.add(root);
-      s.onStart();
-      while (list.isEmpty() == false) {
-        T remove = list.remove(0);
-        s.onNext(remove);
-        getChildren.apply(remove).forEach(list::add);
-      }
-      s.onCompleted();
-    });
+    return Observable.create(SyncOnSubscribe.<Deque<T>, T> createSingleState(
+        () -> {
+          Deque<T> deque = new ArrayDeque<>();
+          deque.add(root);
+          return deque;
+        },
+        (deque, observer) -> {
+          if (deque.isEmpty()) {
+            observer.onCompleted();
+            return;
+          }
+          T remove = deque.poll();
+          observer.onNext(remove);
+          getChildren.apply(remove).forEach(deque::add);
+        }));
   }
 }
@@ -0,0 +1,180 @@
+package xdean.jex.util.file;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lombok.extern.slf4j.Slf4j;
+import xdean.jex.extra.Pair;
+import xdean.jex.extra.annotation.NotThreadSafe;
+import xdean.jex.extra.function.FunctionThrow;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Find duplicate files under a directory in stages, each stage only handles the files still colliding:
+ * <ol>
+ * <li>group by size</li>
+ * <li>group by the digest of the first and last block</li>
+ * <li>group by the full digest ({@link FileUtil#digest(Path, String)})</li>
+ * </ol>
+ * Files not larger than two blocks skip the last stage because the second stage has read them fully. Hashing runs on
+ * a pool bounded by {@link #concurrency(int)}, and so does the count of size groups and files in flight.<br>
+ * A size group is only complete when the traversal ends, so hashing starts after it. Then a duplicate group is emitted
+ * as soon as its own files are hashed, without waiting for other size groups.
+ *
+ * @author XDean
+ */
+@Slf4j
+@NotThreadSafe
+public class DuplicateFinder {
+
+  public static DuplicateFinder of(Path root) {
+    return new DuplicateFinder(root);
+  }
+
+  private final Path root;
+  private int blockSize = 4096;
+  private int concurrency = 4;
+  private long minSize = 1;
+  private String algorithm = "MD5";
+
+  private DuplicateFinder(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Size of the head and tail block hashed in the second stage. Default is 4096.
+   */
+  public DuplicateFinder blockSize(int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+    }
+    this.blockSize = blockSize;
+    return this;
+  }
+
+  /**
+   * Max count of files hashed at the same time. Default is 4.
+   */
+  public DuplicateFinder concurrency(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+    }
+    this.concurrency = concurrency;
+    return this;
+  }
+
+  /**
+   * Files smaller than it are ignored. Default is 1, which ignores empty files.
+   */
+  public DuplicateFinder minSize(long minSize) {
+    this.minSize = minSize;
+    return this;
+  }
+
+  /**
+   * Digest algorithm used by hashing stages. Default is MD5.
+   */
+  public DuplicateFinder algorithm(String algorithm) throws NoSuchAlgorithmException {
+    MessageDigest.getInstance(algorithm);
+    this.algorithm = algorithm;
+    return this;
+  }
+
+  /**
+   * @return groups of duplicate files, each group has at least 2 files.
+   */
+  public Flowable<List<Path>> find() {
+    int blockSize = this.blockSize;
+    int concurrency = this.concurrency;
+    long minSize = this.minSize;
+    String algorithm = this.algorithm;
+    return Flowable.using(
+        () -> Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("DuplicateFinder-%d")
+            .build()),
+        pool -> {
+          Scheduler io = Schedulers.from(pool);
+          return FileUtil.traversal(root)
+              .filter(e -> e.isRegularFile() && e.size() >= minSize)
+              .flowable()
+              .subscribeOn(Schedulers.io())
+              .toMultimap(FileEntry::size, FileEntry::getPath)
+              .flattenAsFlowable(Map::entrySet)
+              .filter(e -> e.getValue().size() > 1)
+              .flatMap(e -> {
+                Flowable<List<Path>> partial = group(e.getValue(), p -> partialDigest(p, algorithm, blockSize), io,
+                    concurrency);
+                if (e.getKey() <= 2L * blockSize) {
+                  return partial;
+                } else {
+                  return partial.flatMap(g -> group(g, p -> FileUtil.digest(p, algorithm), io, concurrency),
+                      concurrency);
+                }
+              }, concurrency);
+        },
+        ExecutorService::shutdown);
+  }
+
+  private static Flowable<List<Path>> group(Collection<Path> paths, FunctionThrow<Path, Object, Exception> hasher,
+      Scheduler io, int concurrency) {
+    return Flowable.fromIterable(paths)
+        .flatMap(p -> Flowable.fromCallable(() -> Pair.of(hasher.apply(p), p))
+            .subscribeOn(io)
+            .doOnError(e -> log.debug("Fail to hash " + p, e))
+            .onErrorResumeNext(Flowable.empty()), concurrency)
+        .toMultimap(Pair::getLeft, Pair::getRight)
+        .flattenAsFlowable(Map::values)
+        .filter(c -> c.size() > 1)
+        .map(ArrayList::new);
+  }
+
+  /**
+   * Digest of the first and last block.
+   */
+  private static ByteBuffer partialDigest(Path path, String algorithm, int blockSize)
+      throws IOException, NoSuchAlgorithmException {
+    MessageDigest md = MessageDigest.getInstance(algorithm);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, 2L * blockSize));
+      if (size <= 2L * blockSize) {
+        read(channel, buffer, 0);
+      } else {
+        buffer.limit(blockSize);
+        read(channel, buffer, 0);
+        buffer.limit(2 * blockSize);
+        read(channel, buffer, size - blockSize);
+      }
+      buffer.flip();
+      md.update(buffer);
+    }
+    return ByteBuffer.wrap(md.digest());
+  }
+
+  private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      position += read;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package xdean.jex.util.file;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import xdean.jex.extra.Pair;
+import xdean.jex.util.security.SecurityUtil;
+
+/**
+ * Digest files concurrently through FileChannel and reused direct buffers.<br>
+ * Results are cached by (path, size, last modified time), the cache can be persisted to a file so that unchanged files
+ * are never digested again between runs.
+ *
+ * <pre>
+ * <code>FileDigester digester = FileDigester.create("SHA-256").cacheFile(cache);
+ * digester.digestAll(paths).blockingForEach(...);
+ * digester.save();</code>
+ * </pre>
+ *
+ * @author XDean
+ */
+@Slf4j
+public class FileDigester {
+
+  public static FileDigester create(String algorithm) throws NoSuchAlgorithmException {
+    MessageDigest.getInstance(algorithm);
+    return new FileDigester(algorithm);
+  }
+
+  private static final String HEADER = "# FileDigester ";
+
+  private final String algorithm;
+  private final Map<Path, Entry> cache = new ConcurrentHashMap<>();
+  private volatile int concurrency = Runtime.getRuntime().availableProcessors();
+  private volatile Path cacheFile;
+
+  private FileDigester(String algorithm) {
+    this.algorithm = algorithm;
+  }
+
+  /**
+   * Max count of files digested at the same time by {@link #digestAll(Iterable)}. Default is the processor count.
+   */
+  public FileDigester concurrency(int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+    }
+    this.concurrency = concurrency;
+    return this;
+  }
+
+  /**
+   * Use the file to persist cache. Existing entries in the file are loaded, unless it was written with another
+   * algorithm.
+   *
+   * @throws IOException
+   */
+  public FileDigester cacheFile(Path cacheFile) throws IOException {
+    this.cacheFile = cacheFile;
+    if (Files.exists(cacheFile)) {
+      load(cacheFile);
+    }
+    return this;
+  }
+
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  /**
+   * Get the digest of the file. Return the cached result if the file's size and last modified time are not changed.
+   *
+   * @param path
+   * @return hex string of the digest
+   * @throws IOException
+   */
+  public String digest(Path path) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    BasicFileAttributes attr = Files.readAttributes(key, BasicFileAttributes.class);
+    long size = attr.size();
+    long modified = attr.lastModifiedTime().toMillis();
+    Entry entry = cache.get(key);
+    if (entry != null && entry.size == size && entry.modified == modified) {
+      return entry.digest;
+    }
+    String digest;
+    try (FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+      digest = SecurityUtil.digest(channel, algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Checked when create.", e);
+    }
+    cache.put(key, new Entry(size, modified, digest));
+    return digest;
+  }
+
+  /**
+   * Digest the files concurrently. Files failed to read are skipped.
+   *
+   * @param paths
+   * @return (path, digest) in completion order
+   */
+  public Flowable<Pair<Path, String>> digestAll(Iterable<Path> paths) {
+    return digestAll(Flowable.fromIterable(paths));
+  }
+
+  /**
+   * @see #digestAll(Iterable)
+   */
+  public Flowable<Pair<Path, String>> digestAll(Flowable<Path> paths) {
+    return paths.flatMap(p -> Flowable.fromCallable(() -> Pair.of(p, digest(p)))
+        .subscribeOn(Schedulers.io())
+        .doOnError(e -> log.debug("Fail to digest " + p, e))
+        .onErrorResumeNext(Flowable.empty()),
+        concurrency);
+  }
+
+  public int cacheSize() {
+    return cache.size();
+  }
+
+  public void clearCache() {
+    cache.clear();
+  }
+
+  /**
+   * Write the cache to the cache file atomically.
+   *
+   * @throws IOException
+   * @throws IllegalStateException if cache file not set
+   */
+  public void save() throws IOException {
+    Path file = cacheFile;
+    if (file == null) {
+      throw new IllegalStateException("Cache file not set.");
+    }
+    Path dir = file.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        writer.write(HEADER);
+        writer.write(algorithm);
+        writer.newLine();
+        for (Map.Entry<Path, Entry> e : cache.entrySet()) {
+          Entry entry = e.getValue();
+          writer.write(entry.digest);
+          writer.write('\t');
+          writer.write(Long.toString(entry.size));
+          writer.write('\t');
+          writer.write(Long.toString(entry.modified));
+          writer.write('\t');
+          writer.write(e.getKey().toString());
+          writer.newLine();
+        }
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private void load(Path file) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String header = reader.readLine();
+      if (header == null || !header.equals(HEADER + algorithm)) {
+        log.debug("Ignore cache file {} with header: {}", file, header);
+        return;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] split = line.split("\t", 4);
+        if (split.length != 4) {
+          continue;
+        }
+        try {
+          cache.put(Paths.get(split[3]), new Entry(Long.parseLong(split[1]), Long.parseLong(split[2]), split[0]));
+        } catch (RuntimeException e) {
+          log.debug("Ignore bad cache line: " + line, e);
+        }
+      }
+    }
+  }
+
+  @AllArgsConstructor
+  @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+  private static class Entry {
+    long size;
+    long modified;
+    String digest;
+  }
+}
@@ -0,0 +1,37 @@
+package xdean.jex.util.file;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * A path with the attributes read when it was visited, so that nobody need to stat it again.
+ *
+ * @author XDean
+ * @see FileTraversal
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class FileEntry {
+  Path path;
+  BasicFileAttributes attributes;
+
+  public boolean isDirectory() {
+    return attributes.isDirectory();
+  }
+
+  public boolean isRegularFile() {
+    return attributes.isRegularFile();
+  }
+
+  public long size() {
+    return attributes.size();
+  }
+}
@@ -0,0 +1,348 @@
+package xdean.jex.util.file;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import lombok.extern.slf4j.Slf4j;
+import xdean.jex.extra.annotation.NotThreadSafe;
+import xdean.jex.util.metrics.Counter;
+import xdean.jex.util.metrics.Metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * File tree traversal engine. Every visited path is emitted with its {@link BasicFileAttributes}.
+ *
+ * <ul>
+ * <li>Sequential mode (parallelism 1) emits in depth first order, directories are listed on demand.</li>
+ * <li>Parallel mode fans out directory listing on a bounded pool, results are emitted in no particular order. The
+ * listing threads are blocked when the buffer is full, so a slow subscriber will not make memory grow. Directories
+ * waiting to be listed are bounded by the buffer size too, when they are full, a listing thread lists the subdirectory
+ * itself right away, depth first.</li>
+ * </ul>
+ * In both mode the result {@link Flowable} honors backpressure and cancellation. Note that it blocks the requesting
+ * thread, subscribe it on an io scheduler if needed.
+ *
+ * @author XDean
+ * @see FileUtil#traversal(Path)
+ */
+@Slf4j
+@NotThreadSafe
+public class FileTraversal {
+
+  public static FileTraversal of(Path root) {
+    return new FileTraversal(root);
+  }
+
+  private static final Object COMPLETE = new Object();
+  private static final Counter ENTRIES = Metrics.counter("file.traversal.entries");
+  private static final LinkOption[] NO_FOLLOW = { LinkOption.NOFOLLOW_LINKS };
+  private static final LinkOption[] FOLLOW = {};
+
+  private final Path root;
+  private int parallelism = 1;
+  private int bufferSize = 1024;
+  private boolean followLinks = false;
+  private Predicate<FileEntry> prune = e -> false;
+  private Predicate<FileEntry> filter = e -> true;
+
+  private FileTraversal(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Number of threads to list directories. Default is 1, which means traverse sequentially in the subscriber's thread.
+   */
+  public FileTraversal parallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Max count of entries listed but not yet emitted in parallel mode, and max count of directories waiting to be
+   * listed.
+   */
+  public FileTraversal bufferSize(int bufferSize) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+    return this;
+  }
+
+  /**
+   * Follow symbolic links or not. Default is false. Directory cycles are skipped when follow links.
+   */
+  public FileTraversal followLinks(boolean followLinks) {
+    this.followLinks = followLinks;
+    return this;
+  }
+
+  /**
+   * Don't descend into the directories matched by the predicate. The pruned directories themselves are still emitted.
+   */
+  public FileTraversal prune(Predicate<FileEntry> prune) {
+    this.prune = prune;
+    return this;
+  }
+
+  /**
+   * Only emit the entries matched by the predicate. Unlike {@link #prune(Predicate)}, filtered directories are still
+   * traversed.
+   */
+  public FileTraversal filter(Predicate<FileEntry> filter) {
+    this.filter = filter;
+    return this;
+  }
+
+  public Flowable<FileEntry> flowable() {
+    Path root = this.root;
+    int parallelism = this.parallelism;
+    int bufferSize = this.bufferSize;
+    boolean followLinks = this.followLinks;
+    Predicate<FileEntry> prune = this.prune;
+    Predicate<FileEntry> filter = this.filter;
+    if (parallelism == 1) {
+      return Flowable.generate(
+          () -> new Walker(root, parallelism, bufferSize, followLinks, prune, filter).sequential(),
+          Walker::nextSequential);
+    } else {
+      return Flowable.generate(
+          () -> new Walker(root, parallelism, bufferSize, followLinks, prune, filter).parallel(),
+          Walker::nextParallel,
+          Walker::cancel);
+    }
+  }
+
+  private static class Walker {
+    final Path root;
+    final int parallelism;
+    final int bufferSize;
+    final LinkOption[] linkOptions;
+    final Predicate<FileEntry> prune;
+    final Predicate<FileEntry> filter;
+    final Set<Object> visited;
+
+    Deque<FileEntry> deque;
+    Throwable rootError;
+
+    BlockingQueue<Object> queue;
+    AtomicInteger pending;
+    ThreadPoolExecutor pool;
+    volatile boolean cancelled;
+
+    Walker(Path root, int parallelism, int bufferSize, boolean followLinks,
+        Predicate<FileEntry> prune, Predicate<FileEntry> filter) {
+      this.root = root;
+      this.parallelism = parallelism;
+      this.bufferSize = bufferSize;
+      this.linkOptions = followLinks ? FOLLOW : NO_FOLLOW;
+      this.prune = prune;
+      this.filter = filter;
+      this.visited = followLinks ? Collections.newSetFromMap(new ConcurrentHashMap<>()) : null;
+    }
+
+    /******************************* Sequential **********************************/
+    Walker sequential() {
+      deque = new ArrayDeque<>();
+      try {
+        deque.push(read(root));
+      } catch (IOException e) {
+        rootError = e;
+      }
+      return this;
+    }
+
+    void nextSequential(Emitter<FileEntry> emitter) {
+      if (rootError != null) {
+        emitter.onError(rootError);
+        return;
+      }
+      while (true) {
+        FileEntry entry = deque.poll();
+        if (entry == null) {
+          emitter.onComplete();
+          return;
+        }
+        if (shouldDescend(entry)) {
+          List<FileEntry> children = new ArrayList<>();
+          list(entry.getPath(), children::add);
+          for (int i = children.size() - 1; i >= 0; i--) {
+            deque.push(children.get(i));
+          }
+        }
+        if (filter.test(entry)) {
+          emitter.onNext(entry);
+          return;
+        }
+      }
+    }
+
+    /******************************* Parallel **********************************/
+    Walker parallel() {
+      // room for the root and the end marker, init never blocks
+      queue = new ArrayBlockingQueue<>(Math.max(bufferSize, 2));
+      pending = new AtomicInteger();
+      pool = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(bufferSize),
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("FileTraversal-%d")
+              .build());
+      FileEntry rootEntry;
+      try {
+        rootEntry = read(root);
+      } catch (IOException e) {
+        queue.add(e);
+        return this;
+      }
+      if (filter.test(rootEntry)) {
+        queue.add(rootEntry);
+      }
+      if (shouldDescend(rootEntry)) {
+        pending.incrementAndGet();
+        submit(rootEntry);
+      } else {
+        queue.add(COMPLETE);
+      }
+      return this;
+    }
+
+    void nextParallel(Emitter<FileEntry> emitter) {
+      Object next;
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        emitter.onError(e);
+        return;
+      }
+      if (next == COMPLETE) {
+        emitter.onComplete();
+      } else if (next instanceof Throwable) {
+        emitter.onError((Throwable) next);
+      } else {
+        emitter.onNext((FileEntry) next);
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      pool.shutdownNow();
+    }
+
+    private void submit(FileEntry dir) {
+      try {
+        pool.execute(() -> walk(dir));
+      } catch (RejectedExecutionException e) {
+        if (!pool.isShutdown()) {
+          // too many directories waiting, list it in this thread
+          walk(dir);
+        }
+        // else cancelled
+      }
+    }
+
+    private void walk(FileEntry dir) {
+      try {
+        list(dir.getPath(), child -> {
+          if (shouldDescend(child)) {
+            pending.incrementAndGet();
+            submit(child);
+          }
+          if (filter.test(child)) {
+            put(child);
+          }
+        });
+      } catch (RuntimeException e) {
+        // from the predicates
+        put(e);
+      } finally {
+        if (pending.decrementAndGet() == 0) {
+          put(COMPLETE);
+        }
+      }
+    }
+
+    private void put(Object o) {
+      try {
+        while (!cancelled) {
+          if (queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /******************************* Common **********************************/
+    private boolean shouldDescend(FileEntry entry) {
+      if (!entry.isDirectory() || prune.test(entry)) {
+        return false;
+      }
+      if (visited != null) {
+        Object key = entry.getAttributes().fileKey();
+        return key == null || visited.add(key);
+      }
+      return true;
+    }
+
+    private FileEntry read(Path path) throws IOException {
+      BasicFileAttributes attr;
+      try {
+        attr = Files.readAttributes(path, BasicFileAttributes.class, linkOptions);
+      } catch (IOException e) {
+        if (linkOptions == NO_FOLLOW) {
+          throw e;
+        }
+        // broken link
+        attr = Files.readAttributes(path, BasicFileAttributes.class, NO_FOLLOW);
+      }
+      ENTRIES.increment();
+      return new FileEntry(path, attr);
+    }
+
+    private void list(Path dir, Consumer<FileEntry> action) {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+        for (Path child : stream) {
+          if (cancelled) {
+            return;
+          }
+          try {
+            action.accept(read(child));
+          } catch (IOException e) {
+            log.debug("Can't read attributes of " + child, e);
+          }
+        }
+      } catch (IOException e) {
+        log.debug("Can't list " + dir, e);
+      }
+    }
+  }
+}
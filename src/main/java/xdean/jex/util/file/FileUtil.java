@@ -1,25 +1,40 @@
 package xdean.jex.util.file;
 
+import static xdean.jex.util.lang.ExceptionUtil.uncheck;
+
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
-import java.util.Collections;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.UnaryOperator;
+import java.util.stream.LongStream;
 
 import lombok.extern.slf4j.Slf4j;
 import rx.Observable;
 import xdean.jex.util.collection.TraversalUtil;
+import xdean.jex.util.metrics.Counter;
+import xdean.jex.util.metrics.Metrics;
 import xdean.jex.util.security.SecurityUtil;
-import xdean.jex.util.task.TaskUtil;
-
-import com.google.common.base.Stopwatch;
+import xdean.jex.util.time.LatencyTimer;
 
 @Slf4j
 public class FileUtil {
 
+  private static final long MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+  private static final Counter DIGEST_BYTES = Metrics.counter("file.digest.bytes");
+  private static final LatencyTimer DIGEST_TIMER = Metrics.timer("file.digest");
+
   public static String getNameWithoutSuffix(Path path) {
     String name = path.getFileName().toString();
     return name.substring(0, name.lastIndexOf('.'));
@@ -46,44 +61,167 @@ public class FileUtil {
    * @param p2
    * @return
    * @throws IOException
+   * @see #mismatch(Path, Path)
    */
   public static boolean equals(Path p1, Path p2) throws IOException {
     if (Files.size(p1) != Files.size(p2)) {
       return false;
     }
-    try (InputStream is1 = Files.newInputStream(p1);
-        InputStream is2 = Files.newInputStream(p2)) {
-      int c;
-      while ((c = is1.read()) != -1) {
-        if (is2.read() != c) {
-          return false;
+    return mismatch(p1, p2) == -1;
+  }
+
+  /**
+   * Find the offset of the first mismatched byte of the two files. The files are compared through memory-mapped
+   * windows, 8 bytes at a time.
+   *
+   * @param p1
+   * @param p2
+   * @return -1 if the two files are same. If one file is the prefix of the other, return the smaller size.
+   * @throws IOException
+   */
+  public static long mismatch(Path p1, Path p2) throws IOException {
+    return mismatch(p1, p2, false, MAP_WINDOW_SIZE);
+  }
+
+  /**
+   * Same as {@link #mismatch(Path, Path)}, but big files are split into regions and compared concurrently in the common
+   * ForkJoinPool. Regions after a found mismatch are skipped.
+   *
+   * @param p1
+   * @param p2
+   * @return
+   * @throws IOException
+   */
+  public static long parallelMismatch(Path p1, Path p2) throws IOException {
+    return mismatch(p1, p2, true, MAP_WINDOW_SIZE);
+  }
+
+  /**
+   * @param windowSize size of each mapped window, also the minimal region size in parallel
+   */
+  static long mismatch(Path p1, Path p2, boolean parallel, long windowSize) throws IOException {
+    try (FileChannel c1 = FileChannel.open(p1, StandardOpenOption.READ);
+        FileChannel c2 = FileChannel.open(p2, StandardOpenOption.READ)) {
+      long size1 = c1.size();
+      long size2 = c2.size();
+      long size = Math.min(size1, size2);
+      AtomicLong found = new AtomicLong(Long.MAX_VALUE);
+      long regionSize = Math.max(windowSize, size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+      if (parallel && size > regionSize) {
+        long regionCount = (size + regionSize - 1) / regionSize;
+        LongStream.range(0, regionCount).parallel().forEach(i -> {
+          long from = i * regionSize;
+          long result = uncheck(() -> mismatch(c1, c2, from, Math.min(regionSize, size - from), windowSize, found));
+          if (result != -1) {
+            found.accumulateAndGet(result, Math::min);
+          }
+        });
+      } else {
+        long result = mismatch(c1, c2, 0, size, windowSize, found);
+        if (result != -1) {
+          found.set(result);
         }
       }
-      return true;
+      if (found.get() != Long.MAX_VALUE) {
+        return found.get();
+      }
+      return size1 == size2 ? -1 : size;
     }
   }
 
+  private static long mismatch(FileChannel c1, FileChannel c2, long from, long length, long windowSize,
+      AtomicLong found) throws IOException {
+    long end = from + length;
+    for (long pos = from; pos < end && pos < found.get(); pos += windowSize) {
+      long len = Math.min(windowSize, end - pos);
+      ByteBuffer b1 = c1.map(MapMode.READ_ONLY, pos, len).order(ByteOrder.nativeOrder());
+      ByteBuffer b2 = c2.map(MapMode.READ_ONLY, pos, len).order(ByteOrder.nativeOrder());
+      int index = mismatch(b1, b2);
+      if (index != -1) {
+        return pos + index;
+      }
+    }
+    return -1;
+  }
+
+  private static int mismatch(ByteBuffer b1, ByteBuffer b2) {
+    boolean bigEndian = b1.order() == ByteOrder.BIG_ENDIAN;
+    int len = b1.remaining();
+    int i = 0;
+    for (; i + Long.BYTES <= len; i += Long.BYTES) {
+      long diff = b1.getLong(i) ^ b2.getLong(i);
+      if (diff != 0) {
+        return i + (bigEndian ? Long.numberOfLeadingZeros(diff) : Long.numberOfTrailingZeros(diff)) / Byte.SIZE;
+      }
+    }
+    for (; i < len; i++) {
+      if (b1.get(i) != b2.get(i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   public static Observable<Path> deepTraversal(Path path) {
-    return TraversalUtil.deepTraversal(path,
-        p -> TaskUtil.firstSuccess(() -> Files.newDirectoryStream(p), () -> Collections.<Path> emptyList()));
+    return TraversalUtil.deepTraversal(path, FileUtil::listChildren);
   }
 
   public static Observable<Path> wideTraversal(Path path) {
-    return TraversalUtil.wideTraversal(path,
-        p -> TaskUtil.firstSuccess(() -> Files.newDirectoryStream(p), () -> Collections.<Path> emptyList()));
+    return TraversalUtil.wideTraversal(path, FileUtil::listChildren);
+  }
+
+  /**
+   * Create a traversal engine which emits paths with their attributes, supports parallel listing, backpressure and
+   * pruning.
+   *
+   * @param path the root
+   * @return
+   * @see FileTraversal
+   */
+  public static FileTraversal traversal(Path path) {
+    return FileTraversal.of(path);
+  }
+
+  private static List<Path> listChildren(Path path) {
+    List<Path> list = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+      stream.forEach(list::add);
+    } catch (NotDirectoryException e) {
+      // leaf
+    } catch (IOException e) {
+      log.debug("Can't list " + path, e);
+    }
+    return list;
   }
 
   public static String md5(Path path) throws IOException {
-    return SecurityUtil.md5(Files.newInputStream(path));
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      DIGEST_BYTES.add(channel.size());
+      return SecurityUtil.md5(channel);
+    } finally {
+      DIGEST_TIMER.record(System.nanoTime() - start);
+    }
   }
 
+  /**
+   * Digest the file through FileChannel.
+   *
+   * @param path
+   * @param algorithm
+   * @return hex string of the digest
+   * @throws NoSuchAlgorithmException
+   * @throws IOException
+   * @see FileDigester FileDigester to digest many files concurrently with cache
+   */
   public static String digest(Path path, String algorithm) throws NoSuchAlgorithmException, IOException {
-    log.debug("To calc {}'s {}, its size is: {}", path.getFileName(), algorithm, Files.size(path));
-    Stopwatch s = Stopwatch.createStarted();
-    try {
-      return SecurityUtil.digest(Files.newInputStream(path), algorithm);
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      log.debug("To calc {}'s {}, its size is: {}", path.getFileName(), algorithm, channel.size());
+      DIGEST_BYTES.add(channel.size());
+      return SecurityUtil.digest(channel, algorithm);
     } finally {
-      log.debug("Calc end, use {} ms", s.elapsed(TimeUnit.MILLISECONDS));
+      DIGEST_TIMER.record(System.nanoTime() - start);
     }
   }
 }
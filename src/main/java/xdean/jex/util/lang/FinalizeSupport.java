@@ -3,58 +3,193 @@ package xdean.jex.util.lang;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
-import java.util.Map;
-import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import xdean.jex.util.reflect.ReflectUtil;
+import lombok.extern.slf4j.Slf4j;
+import xdean.jex.util.metrics.Metrics;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Run an action after an object is garbage collected, without overriding {@link Object#finalize()}.<br>
+ * References are spread over several stripes, each stripe has its own {@link ReferenceQueue} and drainer thread. The
+ * actions run on a bounded executor. When it is full, actions wait in an overflow queue and are moved into the
+ * executor as running actions finish, so a drainer never runs an action itself. Configured by system properties:
+ * <ul>
+ * <li>{@code xdean.jex.finalize.stripes}: count of stripes, default min(4, processors)</li>
+ * <li>{@code xdean.jex.finalize.threads}: threads to run actions, default 2</li>
+ * <li>{@code xdean.jex.finalize.queue}: count of actions waiting in the executor before overflow, default 1024</li>
+ * </ul>
+ */
+@Slf4j
 public class FinalizeSupport {
 
-  private static Map<Reference<?>, Runnable> map = new ConcurrentHashMap<>();
-  private static ReferenceQueue<Object> queue = new ReferenceQueue<>();
-  private static Object lock;
+  /**
+   * A registration of {@link FinalizeSupport#register(Object, Runnable)}.
+   */
+  public interface Registration {
+    /**
+     * Cancel the action.
+     *
+     * @return false if the action has been triggered or cancelled
+     */
+    boolean cancel();
+  }
+
+  private static final Stripe[] stripes;
+  private static final ThreadPoolExecutor executor;
+  private static final AtomicInteger pending = new AtomicInteger();
+  private static final Queue<Runnable> overflow = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger overflowCount = new AtomicInteger();
 
   static {
-    try {
-      lock = ReflectUtil.getFieldValue(ReferenceQueue.class, queue, "lock");
-    } catch (NoSuchFieldException e) {
-      throw new Error("Can't find ReferenceQueue's lock, Check code and java version");
-    }
+    int stripeCount = Math.max(1, Integer.getInteger("xdean.jex.finalize.stripes",
+        Math.min(4, Runtime.getRuntime().availableProcessors())));
+    int threads = Math.max(1, Integer.getInteger("xdean.jex.finalize.threads", 2));
+    int queueSize = Math.max(1, Integer.getInteger("xdean.jex.finalize.queue", 1024));
+    executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("Finalize Support Executor-%d")
+            .build(),
+        (r, e) -> {
+          overflowCount.incrementAndGet();
+          overflow.add(r);
+        }) {
+      @Override
+      protected void afterExecute(Runnable r, Throwable t) {
+        // the overflow is only filled when all threads are busy, so a finishing action always moves the rest in
+        Runnable next = overflow.poll();
+        if (next != null) {
+          overflowCount.decrementAndGet();
+          execute(next);
+        }
+      }
+    };
 
     ThreadGroup tg = Thread.currentThread().getThreadGroup();
     for (ThreadGroup tgn = tg; tgn != null; tg = tgn, tgn = tg.getParent()) {
       ;
     }
-    Thread handler = new FinalizeHandler(tg, "Finalize Support");
-    handler.setPriority(Thread.MAX_PRIORITY);
-    handler.setDaemon(true);
-    handler.start();
+    Metrics.gauge("finalize.pending", FinalizeSupport::getPendingCount);
+    Metrics.gauge("finalize.queued", FinalizeSupport::getQueuedCount);
+
+    stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe();
+      Thread handler = new FinalizeHandler(tg, "Finalize Support-" + i, stripes[i]);
+      handler.setPriority(Thread.MAX_PRIORITY);
+      handler.setDaemon(true);
+      handler.start();
+    }
   }
 
+  /**
+   * Run the action after the object is garbage collected. The action must not refer the object, otherwise it will
+   * never be collected.
+   *
+   * @param o the object
+   * @param r the action
+   * @see #register(Object, Runnable)
+   */
   public static void finalize(Object o, Runnable r) {
-    map.put(new PhantomReference<>(o, queue), r);
+    register(o, r);
+  }
+
+  /**
+   * Same as {@link #finalize(Object, Runnable)}, and the action can be cancelled.
+   *
+   * @param o the object
+   * @param r the action
+   * @return registration to cancel the action
+   */
+  public static Registration register(Object o, Runnable r) {
+    Stripe stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+    Ref ref = new Ref(o, stripe, r);
+    stripe.refs.add(ref);
+    pending.incrementAndGet();
+    return ref;
+  }
+
+  /**
+   * Count of registered actions not yet triggered or cancelled.
+   */
+  public static int getPendingCount() {
+    return pending.get();
+  }
+
+  /**
+   * Count of triggered actions waiting for an executor thread, including the overflow.
+   */
+  public static int getQueuedCount() {
+    return executor.getQueue().size() + overflowCount.get();
+  }
+
+  private static class Stripe {
+    final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    final Set<Ref> refs = ConcurrentHashMap.newKeySet();
+  }
+
+  private static class Ref extends PhantomReference<Object> implements Registration {
+    final Stripe stripe;
+    final Runnable action;
+
+    Ref(Object referent, Stripe stripe, Runnable action) {
+      super(referent, stripe.queue);
+      this.stripe = stripe;
+      this.action = action;
+    }
+
+    @Override
+    public boolean cancel() {
+      if (stripe.refs.remove(this)) {
+        pending.decrementAndGet();
+        clear();
+        return true;
+      }
+      return false;
+    }
+
+    void trigger() {
+      if (stripe.refs.remove(this)) {
+        pending.decrementAndGet();
+        executor.execute(() -> {
+          try {
+            action.run();
+          } catch (Throwable t) {
+            log.error("Finalize action error.", t);
+          }
+        });
+      }
+    }
   }
 
   private static class FinalizeHandler extends Thread {
-    public FinalizeHandler(ThreadGroup tg, String name) {
+    private final Stripe stripe;
+
+    public FinalizeHandler(ThreadGroup tg, String name, Stripe stripe) {
       super(tg, name);
+      this.stripe = stripe;
     }
 
     @Override
     public void run() {
-      synchronized (lock) {
-        while (!Thread.interrupted()) {
-          Reference<? extends Object> ref = queue.poll();
-          if (ref == null) {
-            try {
-              lock.wait();
-            } catch (InterruptedException e) {
-              Thread.currentThread().interrupt();
-            }
-          } else {
-            Optional.ofNullable(map.remove(ref)).ifPresent(r -> r.run());
-          }
+      while (!Thread.interrupted()) {
+        try {
+          Reference<? extends Object> ref = stripe.queue.remove();
+          ((Ref) ref).trigger();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+          log.error("Finalize handler error.", t);
         }
       }
     }
@@ -1,6 +1,9 @@
 package xdean.jex.util.lang;
 
 import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
@@ -9,15 +12,17 @@ public class PrimitiveTypeUtil {
 
   private static final BiMap<Class<?>, Class<?>> wrapperToPrimitive = HashBiMap.create();
   private static final BiMap<Class<?>, Class<?>> arrayToPrimitive = HashBiMap.create();
+  private static final Map<Class<?>, Integer> sizes = new HashMap<>();
+  private static final Map<Class<?>, Function<String, ?>> parsers = new HashMap<>();
   static {
-    add(boolean.class, Boolean.class);
-    add(byte.class, Byte.class);
-    add(char.class, Character.class);
-    add(double.class, Double.class);
-    add(float.class, Float.class);
-    add(int.class, Integer.class);
-    add(long.class, Long.class);
-    add(short.class, Short.class);
+    add(boolean.class, Boolean.class, 1, PrimitiveTypeUtil::parseBoolean);
+    add(byte.class, Byte.class, 1, Byte::valueOf);
+    add(char.class, Character.class, Character.BYTES, PrimitiveTypeUtil::parseChar);
+    add(double.class, Double.class, Double.BYTES, Double::valueOf);
+    add(float.class, Float.class, Float.BYTES, Float::valueOf);
+    add(int.class, Integer.class, Integer.BYTES, Integer::valueOf);
+    add(long.class, Long.class, Long.BYTES, PrimitiveTypeUtil::parseLong);
+    add(short.class, Short.class, Short.BYTES, Short::valueOf);
   }
 
   /**
@@ -78,75 +83,68 @@ public class PrimitiveTypeUtil {
    * @return
    */
   public static int sizeOf(Class<?> clz) throws IllegalArgumentException {
-    switch (clz.getName()) {
-    case "int":
-      return Integer.BYTES;
-    case "short":
-      return Short.BYTES;
-    case "long":
-      return Long.BYTES;
-    case "double":
-      return Double.BYTES;
-    case "float":
-      return Float.BYTES;
-    case "boolean":
-      return 1;
-    case "char":
-      return Character.BYTES;
-    case "byte":
-      return 1;
-    default:
+    Integer size = sizes.get(clz);
+    if (size == null) {
       throw new IllegalArgumentException("Not a primitive type.");
     }
+    return size;
   }
 
   /**
    * Parse the string value to a primitive type
    *
-   * @param clz
+   * @param clz primitive or wrapper type
    * @param objectValue
-   * @return a wrapper type value
+   * @return a wrapper type value, or null if the class is not primitive or wrapper type
    */
-  @SuppressWarnings("unchecked")
   public static <T> T parse(Class<T> clz, String objectValue) {
-    switch (clz.getName()) {
-    case "int":
-      return (T) Integer.valueOf(objectValue);
-    case "short":
-      return (T) Short.valueOf(objectValue);
-    case "long":
-      if (objectValue.endsWith("L") || objectValue.endsWith("l")) {
-        objectValue = objectValue.substring(0, objectValue.length() - 1);
-      }
-      return (T) Long.valueOf(objectValue);
-    case "double":
-      return (T) Double.valueOf(objectValue);
-    case "float":
-      return (T) Float.valueOf(objectValue);
-    case "boolean":
-      if (objectValue.equalsIgnoreCase(Boolean.TRUE.toString())) {
-        return (T) Boolean.TRUE;
-      } else if (objectValue.equalsIgnoreCase(Boolean.FALSE.toString())) {
-        return (T) Boolean.FALSE;
-      } else {
-        throw new IllegalArgumentException(
-            String.format("The String %s cannot parse as boolean.", objectValue));
-      }
-    case "char":
-      if (objectValue.length() == 1) {
-        return (T) new Character(objectValue.charAt(0));
-      } else {
-        throw new IllegalArgumentException(String.format("The String %s cannot parse as char.", objectValue));
-      }
-    case "byte":
-      return (T) Byte.valueOf(objectValue);
-    default:
-      return null;
+    Function<String, T> parser = getParser(clz);
+    return parser == null ? null : parser.apply(objectValue);
+  }
+
+  /**
+   * Get the parser of the primitive or wrapper type. The same parser instance is returned for a type.
+   *
+   * @param clz
+   * @return the parser, or null if the class is not primitive or wrapper type
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Function<String, T> getParser(Class<T> clz) {
+    return (Function<String, T>) parsers.get(clz);
+  }
+
+  private static Long parseLong(String objectValue) {
+    if (objectValue.endsWith("L") || objectValue.endsWith("l")) {
+      objectValue = objectValue.substring(0, objectValue.length() - 1);
+    }
+    return Long.valueOf(objectValue);
+  }
+
+  private static Boolean parseBoolean(String objectValue) {
+    if (objectValue.equalsIgnoreCase(Boolean.TRUE.toString())) {
+      return Boolean.TRUE;
+    } else if (objectValue.equalsIgnoreCase(Boolean.FALSE.toString())) {
+      return Boolean.FALSE;
+    } else {
+      throw new IllegalArgumentException(
+          String.format("The String %s cannot parse as boolean.", objectValue));
+    }
+  }
+
+  private static Character parseChar(String objectValue) {
+    if (objectValue.length() == 1) {
+      return objectValue.charAt(0);
+    } else {
+      throw new IllegalArgumentException(String.format("The String %s cannot parse as char.", objectValue));
     }
   }
 
-  private static void add(final Class<?> primitiveType, final Class<?> wrapperType) {
+  private static <T> void add(final Class<?> primitiveType, final Class<T> wrapperType, int size,
+      Function<String, T> parser) {
     wrapperToPrimitive.put(wrapperType, primitiveType);
     arrayToPrimitive.put(Array.newInstance(primitiveType, 1).getClass(), primitiveType);
+    sizes.put(primitiveType, size);
+    parsers.put(primitiveType, parser);
+    parsers.put(wrapperType, parser);
   }
 }
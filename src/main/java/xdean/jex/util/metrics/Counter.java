@@ -0,0 +1,44 @@
+package xdean.jex.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named count. It can go down, so that it can also track a level such as in-flight tasks.
+ *
+ * @author XDean
+ * @see Metrics#counter(String)
+ */
+public class Counter {
+
+  private final String name;
+  private final LongAdder value = new LongAdder();
+
+  Counter(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void increment() {
+    value.increment();
+  }
+
+  public void decrement() {
+    value.decrement();
+  }
+
+  public void add(long delta) {
+    value.add(delta);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  public String toString() {
+    return name + "=" + get();
+  }
+}
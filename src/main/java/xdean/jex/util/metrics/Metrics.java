@@ -0,0 +1,68 @@
+package xdean.jex.util.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import xdean.jex.util.time.LatencySnapshot;
+import xdean.jex.util.time.LatencyTimer;
+
+/**
+ * In-process metrics registry of counters, gauges and timers. Updating a counter or a timer doesn't lock or allocate,
+ * gauges are only evaluated when snapshot.
+ *
+ * @author XDean
+ * @see MetricsExporter
+ */
+public class Metrics {
+
+  private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+  private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+  /**
+   * Get the named counter, create it if absent. Hold the result in a field for hot paths.
+   */
+  public static Counter counter(String name) {
+    Counter counter = COUNTERS.get(name);
+    return counter != null ? counter : COUNTERS.computeIfAbsent(name, Counter::new);
+  }
+
+  /**
+   * Register a gauge, replace the existing one with the same name.
+   */
+  public static void gauge(String name, LongSupplier value) {
+    GAUGES.put(name, value);
+  }
+
+  public static void removeGauge(String name) {
+    GAUGES.remove(name);
+  }
+
+  /**
+   * @see LatencyTimer#of(String)
+   */
+  public static LatencyTimer timer(String name) {
+    return LatencyTimer.of(name);
+  }
+
+  /**
+   * Current values of all counters and gauges, sorted by name.
+   */
+  public static SortedMap<String, Long> values() {
+    SortedMap<String, Long> map = new TreeMap<>();
+    COUNTERS.forEach((k, v) -> map.put(k, v.get()));
+    GAUGES.forEach((k, v) -> map.put(k, v.getAsLong()));
+    return map;
+  }
+
+  /**
+   * Snapshots of all timers, sorted by name.
+   */
+  public static SortedMap<String, LatencySnapshot> timers() {
+    SortedMap<String, LatencySnapshot> map = new TreeMap<>();
+    LatencyTimer.all().forEach(t -> map.put(t.getName(), t.snapshot()));
+    return map;
+  }
+}
@@ -0,0 +1,145 @@
+package xdean.jex.util.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import xdean.jex.util.time.LatencySnapshot;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Export {@link Metrics} as text or JSON. Timer values are in nanoseconds.
+ *
+ * @author XDean
+ */
+@Slf4j
+public class MetricsExporter {
+
+  public enum Format {
+    /**
+     * One {@code name value} per line, timers are exported as {@code name.count}, {@code name.p99} etc.
+     */
+    TEXT,
+    /**
+     * {@code {"values":{name:value},"timers":{name:{"count":..,"p99":..}}}}
+     */
+    JSON
+  }
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("MetricsExporter")
+          .build());
+
+  public static String export(Format format) {
+    return format == Format.JSON ? toJson() : toText();
+  }
+
+  public static String toText() {
+    StringBuilder sb = new StringBuilder();
+    Metrics.values().forEach((k, v) -> sb.append(k).append(' ').append(v).append('\n'));
+    Metrics.timers().forEach((k, t) -> timerFields(t).forEach(
+        (f, v) -> sb.append(k).append('.').append(f).append(' ').append(v).append('\n')));
+    return sb.toString();
+  }
+
+  public static String toJson() {
+    StringBuilder sb = new StringBuilder("{\"values\":{");
+    String sep = "";
+    for (Map.Entry<String, Long> e : Metrics.values().entrySet()) {
+      sb.append(sep);
+      quote(sb, e.getKey()).append(':').append(e.getValue());
+      sep = ",";
+    }
+    sb.append("},\"timers\":{");
+    sep = "";
+    for (Map.Entry<String, LatencySnapshot> e : Metrics.timers().entrySet()) {
+      sb.append(sep);
+      quote(sb, e.getKey()).append(":{");
+      String fieldSep = "";
+      for (Map.Entry<String, Long> f : timerFields(e.getValue()).entrySet()) {
+        sb.append(fieldSep);
+        quote(sb, f.getKey()).append(':').append(f.getValue());
+        fieldSep = ",";
+      }
+      sb.append('}');
+      sep = ",";
+    }
+    return sb.append("}}").toString();
+  }
+
+  /**
+   * Write to the file atomically.
+   *
+   * @throws IOException
+   */
+  public static void write(Path file, Format format) throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        writer.write(export(format));
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Export periodically to the sink, e.g. a file writer or an HTTP client. Cancel the returned future to stop.
+   */
+  public static ScheduledFuture<?> schedule(long period, TimeUnit unit, Format format, Consumer<String> sink) {
+    return SCHEDULER.scheduleAtFixedRate(() -> {
+      try {
+        sink.accept(export(format));
+      } catch (RuntimeException e) {
+        log.warn("Fail to export metrics.", e);
+      }
+    }, period, period, unit);
+  }
+
+  private static Map<String, Long> timerFields(LatencySnapshot t) {
+    Map<String, Long> map = new LinkedHashMap<>();
+    map.put("count", t.getCount());
+    map.put("mean", t.getMean());
+    map.put("p50", t.getP50());
+    map.put("p99", t.getP99());
+    map.put("p999", t.getP999());
+    map.put("max", t.getMax());
+    return map;
+  }
+
+  private static StringBuilder quote(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"');
+  }
+}
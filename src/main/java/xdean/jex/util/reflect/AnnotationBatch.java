@@ -0,0 +1,103 @@
+package xdean.jex.util.reflect;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import xdean.jex.extra.annotation.NotThreadSafe;
+import xdean.jex.util.collection.MapUtil;
+
+/**
+ * Collect annotation changes of many classes, methods and fields and apply them in one pass.<br>
+ * Changes of the same target are merged, so every class only installs one new AnnotationData.
+ *
+ * <pre>
+ * <code>AnnotationIndex index = AnnotationUtil.batch()
+ *     .add(A.class, anno1)
+ *     .add(methodOfA, anno2)
+ *     .add(fieldOfB, anno3)
+ *     .applyAndIndex();</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see AnnotationUtil
+ * @see AnnotationIndex
+ */
+@NotThreadSafe
+public class AnnotationBatch {
+
+  private final Map<Class<?>, List<Annotation>> classes = new LinkedHashMap<>();
+  private final Map<Executable, List<Annotation>> executables = new LinkedHashMap<>();
+  private final Map<Field, List<Annotation>> fields = new LinkedHashMap<>();
+
+  AnnotationBatch() {
+  }
+
+  public AnnotationBatch add(Class<?> c, Annotation... annotations) {
+    MapUtil.getOrPutDefault(classes, c, ArrayList::new).addAll(Arrays.asList(annotations));
+    return this;
+  }
+
+  /**
+   * Note that you may need to give the root method.
+   *
+   * @see AnnotationUtil#addAnnotation(Executable, Annotation)
+   */
+  public AnnotationBatch add(Executable ex, Annotation... annotations) {
+    MapUtil.getOrPutDefault(executables, ex, ArrayList::new).addAll(Arrays.asList(annotations));
+    return this;
+  }
+
+  /**
+   * Note that you may need to give the root field.
+   *
+   * @see AnnotationUtil#addAnnotation(Field, Annotation)
+   */
+  public AnnotationBatch add(Field field, Annotation... annotations) {
+    MapUtil.getOrPutDefault(fields, field, ArrayList::new).addAll(Arrays.asList(annotations));
+    return this;
+  }
+
+  public int size() {
+    return classes.size() + executables.size() + fields.size();
+  }
+
+  /**
+   * Apply all changes and clear this batch.
+   */
+  public void apply() {
+    classes.forEach(AnnotationUtil::addAnnotations);
+    executables.forEach(AnnotationUtil::addAnnotations);
+    fields.forEach(AnnotationUtil::addAnnotations);
+    classes.clear();
+    executables.clear();
+    fields.clear();
+  }
+
+  /**
+   * Apply all changes and build index of all touched classes (the declaring classes of touched members are included).
+   * The added annotations are always indexed even if the given member is not the root one.
+   */
+  public AnnotationIndex applyAndIndex() {
+    AnnotationIndex.Builder builder = AnnotationIndex.builder();
+    Set<Class<?>> touched = new LinkedHashSet<>(classes.keySet());
+    executables.forEach((e, l) -> {
+      touched.add(e.getDeclaringClass());
+      l.forEach(a -> builder.put(e, a));
+    });
+    fields.forEach((f, l) -> {
+      touched.add(f.getDeclaringClass());
+      l.forEach(a -> builder.put(f, a));
+    });
+    apply();
+    touched.forEach(builder::scan);
+    return builder.build();
+  }
+}
@@ -0,0 +1,155 @@
+package xdean.jex.util.reflect;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import xdean.jex.util.collection.MapUtil;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable index from annotation type to annotated elements (classes, constructors, methods and fields).<br>
+ * Built once by scanning declared annotations, then lookups are plain map queries instead of repeated
+ * {@link AnnotatedElement#getAnnotation(Class)} calls.
+ *
+ * @author XDean
+ * @see AnnotationBatch#applyAndIndex()
+ */
+public class AnnotationIndex {
+
+  public static AnnotationIndex of(Class<?>... classes) {
+    return of(Arrays.asList(classes));
+  }
+
+  public static AnnotationIndex of(Collection<? extends Class<?>> classes) {
+    Builder builder = builder();
+    classes.forEach(builder::scan);
+    return builder.build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final ImmutableMap<AnnotatedElement, ImmutableMap<Class<? extends Annotation>, Annotation>> elementToAnnotations;
+  private final ImmutableListMultimap<Class<? extends Annotation>, AnnotatedElement> typeToElements;
+
+  private AnnotationIndex(Map<AnnotatedElement, Map<Class<? extends Annotation>, Annotation>> map) {
+    ImmutableMap.Builder<AnnotatedElement, ImmutableMap<Class<? extends Annotation>, Annotation>> eb = ImmutableMap
+        .builder();
+    ImmutableListMultimap.Builder<Class<? extends Annotation>, AnnotatedElement> tb = ImmutableListMultimap.builder();
+    map.forEach((e, annos) -> {
+      eb.put(e, ImmutableMap.copyOf(annos));
+      annos.keySet().forEach(type -> tb.put(type, e));
+    });
+    elementToAnnotations = eb.build();
+    typeToElements = tb.build();
+  }
+
+  /**
+   * Get all elements annotated by the given annotation type.
+   */
+  public List<AnnotatedElement> getElements(Class<? extends Annotation> type) {
+    return typeToElements.get(type);
+  }
+
+  public List<Class<?>> getClasses(Class<? extends Annotation> type) {
+    return filter(type, Class.class);
+  }
+
+  public List<Constructor<?>> getConstructors(Class<? extends Annotation> type) {
+    return filter(type, Constructor.class);
+  }
+
+  public List<Method> getMethods(Class<? extends Annotation> type) {
+    return filter(type, Method.class);
+  }
+
+  public List<Field> getFields(Class<? extends Annotation> type) {
+    return filter(type, Field.class);
+  }
+
+  /**
+   * Get the indexed annotation of the element.
+   *
+   * @return null if not present
+   */
+  @SuppressWarnings("unchecked")
+  public <A extends Annotation> A getAnnotation(AnnotatedElement element, Class<A> type) {
+    Map<Class<? extends Annotation>, Annotation> map = elementToAnnotations.get(element);
+    return map == null ? null : (A) map.get(type);
+  }
+
+  public boolean isAnnotationPresent(AnnotatedElement element, Class<? extends Annotation> type) {
+    return getAnnotation(element, type) != null;
+  }
+
+  /**
+   * Get all indexed annotations of the element.
+   */
+  public Collection<Annotation> getAnnotations(AnnotatedElement element) {
+    Map<Class<? extends Annotation>, Annotation> map = elementToAnnotations.get(element);
+    return map == null ? Collections.emptyList() : map.values();
+  }
+
+  public int size() {
+    return elementToAnnotations.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T> filter(Class<? extends Annotation> type, Class<? super T> elementType) {
+    return (List<T>) getElements(type).stream()
+        .filter(elementType::isInstance)
+        .collect(Collectors.toList());
+  }
+
+  public static class Builder {
+    private final Map<AnnotatedElement, Map<Class<? extends Annotation>, Annotation>> map = new LinkedHashMap<>();
+
+    private Builder() {
+    }
+
+    /**
+     * Index the declared annotations of the class and its declared constructors, methods and fields.
+     */
+    public Builder scan(Class<?> clz) {
+      put(clz, clz.getDeclaredAnnotations());
+      for (Constructor<?> c : clz.getDeclaredConstructors()) {
+        put(c, c.getDeclaredAnnotations());
+      }
+      for (Method m : clz.getDeclaredMethods()) {
+        put(m, m.getDeclaredAnnotations());
+      }
+      for (Field f : clz.getDeclaredFields()) {
+        put(f, f.getDeclaredAnnotations());
+      }
+      return this;
+    }
+
+    public Builder put(AnnotatedElement element, Annotation... annotations) {
+      if (annotations.length == 0) {
+        return this;
+      }
+      Map<Class<? extends Annotation>, Annotation> annos = MapUtil.getOrPutDefault(map, element, LinkedHashMap::new);
+      for (Annotation annotation : annotations) {
+        annos.put(annotation.annotationType(), annotation);
+      }
+      return this;
+    }
+
+    public AnnotationIndex build() {
+      return new AnnotationIndex(map);
+    }
+  }
+}
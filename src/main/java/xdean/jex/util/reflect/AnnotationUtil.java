@@ -12,6 +12,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -117,8 +118,20 @@ public class AnnotationUtil {
    * @see #createAnnotationFromMap(Class, Map)
    * @see ReflectUtil#getRootMethods(Class)
    */
-  @SuppressWarnings("unchecked")
   public static void addAnnotation(Executable ex, Annotation annotation) {
+    addAnnotations(ex, Collections.singleton(annotation));
+  }
+
+  /**
+   * Add annotations to Executable(Method or Constructor) in one pass.<br>
+   * Note that you may need to give the root method.
+   *
+   * @param ex
+   * @param annotations
+   * @see #addAnnotation(Executable, Annotation)
+   */
+  @SuppressWarnings("unchecked")
+  public static void addAnnotations(Executable ex, Collection<? extends Annotation> annotations) {
     ex.getAnnotation(Annotation.class);// prevent declaredAnnotations haven't initialized
     Map<Class<? extends Annotation>, Annotation> annos;
     try {
@@ -134,7 +147,7 @@ public class AnnotationUtil {
         throw new IllegalStateException(e);
       }
     }
-    annos.put(annotation.annotationType(), annotation);
+    putAll(annos, annotations);
   }
 
   /**
@@ -148,8 +161,20 @@ public class AnnotationUtil {
    * @see #createAnnotationFromMap(Class, Map)
    * @see ReflectUtil#getRootFields(Class)
    */
-  @SuppressWarnings("unchecked")
   public static void addAnnotation(Field field, Annotation annotation) {
+    addAnnotations(field, Collections.singleton(annotation));
+  }
+
+  /**
+   * Add annotations to Field in one pass.<br>
+   * Note that you may need to give the root field.
+   *
+   * @param field
+   * @param annotations
+   * @see #addAnnotation(Field, Annotation)
+   */
+  @SuppressWarnings("unchecked")
+  public static void addAnnotations(Field field, Collection<? extends Annotation> annotations) {
     field.getAnnotation(Annotation.class);// prevent declaredAnnotations haven't initialized
     Map<Class<? extends Annotation>, Annotation> annos;
     try {
@@ -165,7 +190,7 @@ public class AnnotationUtil {
         throw new IllegalStateException(e);
       }
     }
-    annos.put(annotation.annotationType(), annotation);
+    putAll(annos, annotations);
   }
 
   /**
@@ -177,12 +202,23 @@ public class AnnotationUtil {
    * @see #createAnnotationFromMap(Class, Map)
    */
   public static void addAnnotation(Class<?> c, Annotation annotation) {
+    addAnnotations(c, Collections.singleton(annotation));
+  }
+
+  /**
+   * Add annotations to Class with only one AnnotationData installed.
+   *
+   * @param c
+   * @param annotations
+   * @see #addAnnotation(Class, Annotation)
+   */
+  public static void addAnnotations(Class<?> c, Collection<? extends Annotation> annotations) {
     try {
       while (true) { // retry loop
         int classRedefinedCount = Class_classRedefinedCount.getInt(c);
         Object /* AnnotationData */annotationData = Class_annotationData.invoke(c);
         // null or stale annotationData -> optimistically create new instance
-        Object newAnnotationData = createAnnotationData(c, annotationData, annotation,
+        Object newAnnotationData = createAnnotationData(c, annotationData, annotations,
             classRedefinedCount);
         // try to install it
         if ((boolean) Atomic_casAnnotationData.invoke(Atomic_class, c, annotationData, newAnnotationData)) {
@@ -193,30 +229,44 @@ public class AnnotationUtil {
     } catch (IllegalArgumentException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
       throw new IllegalStateException(e);
     }
-
   }
 
-  @SuppressWarnings("unchecked")
   public static Object /* AnnotationData */createAnnotationData(
       Class<?> c, Object /* AnnotationData */annotationData, Annotation annotation, int classRedefinedCount)
       throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+    return createAnnotationData(c, annotationData, Collections.singleton(annotation), classRedefinedCount);
+  }
+
+  @SuppressWarnings("unchecked")
+  public static Object /* AnnotationData */createAnnotationData(Class<?> c, Object /* AnnotationData */annotationData,
+      Collection<? extends Annotation> annotationsToAdd, int classRedefinedCount)
+      throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
     Map<Class<? extends Annotation>, Annotation> annotations = (Map<Class<? extends Annotation>, Annotation>) AnnotationData_annotations
         .get(annotationData);
     Map<Class<? extends Annotation>, Annotation> declaredAnnotations = (Map<Class<? extends Annotation>, Annotation>) AnnotationData_declaredAnotations
         .get(annotationData);
 
     Map<Class<? extends Annotation>, Annotation> newDeclaredAnnotations = new LinkedHashMap<>(annotations);
-    newDeclaredAnnotations.put(annotation.annotationType(), annotation);
+    putAll(newDeclaredAnnotations, annotationsToAdd);
     Map<Class<? extends Annotation>, Annotation> newAnnotations;
     if (declaredAnnotations == annotations) {
       newAnnotations = newDeclaredAnnotations;
     } else {
       newAnnotations = new LinkedHashMap<>(annotations);
-      newAnnotations.put(annotation.annotationType(), annotation);
+      putAll(newAnnotations, annotationsToAdd);
     }
     return AnnotationData_constructor.newInstance(newAnnotations, newDeclaredAnnotations, classRedefinedCount);
   }
 
+  /**
+   * Create a batch to change annotations of many classes, methods and fields in one pass.
+   *
+   * @see AnnotationBatch
+   */
+  public static AnnotationBatch batch() {
+    return new AnnotationBatch();
+  }
+
   /**
    * Create annotation from the given map.
    *
@@ -234,4 +284,11 @@ public class AnnotationUtil {
                 new HashMap<>(valuesMap)))
             ));
   }
+
+  private static void putAll(Map<Class<? extends Annotation>, Annotation> map,
+      Collection<? extends Annotation> annotations) {
+    for (Annotation annotation : annotations) {
+      map.put(annotation.annotationType(), annotation);
+    }
+  }
 }
@@ -0,0 +1,60 @@
+package xdean.jex.util.security;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of direct buffers. At most {@code max} direct buffers are ever allocated, when they are all in use, a
+ * heap buffer is returned instead and dropped on release. So the direct memory doesn't grow with the thread count.
+ *
+ * @author XDean
+ */
+final class BufferPool {
+
+  static final BufferPool DEFAULT = new BufferPool(256 * 1024, Runtime.getRuntime().availableProcessors() * 2);
+
+  private final int bufferSize;
+  private final int max;
+  private final Queue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger allocated = new AtomicInteger();
+
+  BufferPool(int bufferSize, int max) {
+    this.bufferSize = bufferSize;
+    this.max = max;
+  }
+
+  /**
+   * @return a cleared buffer, must be {@link #release(ByteBuffer) released} after use
+   */
+  ByteBuffer acquire() {
+    ByteBuffer buffer = idle.poll();
+    if (buffer == null) {
+      if (allocated.getAndUpdate(n -> n < max ? n + 1 : n) < max) {
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+      } else {
+        buffer = ByteBuffer.allocate(bufferSize);
+      }
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  void release(ByteBuffer buffer) {
+    if (buffer.isDirect()) {
+      idle.offer(buffer);
+    }
+  }
+
+  int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Count of direct buffers allocated.
+   */
+  int getAllocatedCount() {
+    return allocated.get();
+  }
+}
@@ -2,14 +2,18 @@ package xdean.jex.util.security;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
-import com.google.common.base.Stopwatch;
+import xdean.jex.util.string.HexUtil;
 
 public class SecurityUtil {
 
+  private static final int BUFFER_SIZE = 256 * 1024;
+
   public static String md5(InputStream input) throws IOException {
     try {
       return digest(input, "MD5");
@@ -19,37 +23,58 @@ public class SecurityUtil {
     }
   }
 
+  public static String md5(ReadableByteChannel input) throws IOException {
+    try {
+      return digest(input, "MD5");
+    } catch (NoSuchAlgorithmException e) {
+      // MD5 must be ok
+      throw new RuntimeException(e);
+    }
+  }
+
   public static String digest(InputStream input, String algorithm) throws IOException, NoSuchAlgorithmException {
-    Stopwatch sw = Stopwatch.createStarted();
-    int bufferSize = 256 * 1024;
     MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
     try (DigestInputStream digestInputStream = new DigestInputStream(input, messageDigest);) {
-      byte[] buffer = new byte[bufferSize];
+      byte[] buffer = new byte[BUFFER_SIZE];
       while (digestInputStream.read(buffer) > 0) {
         ;
       }
       messageDigest = digestInputStream.getMessageDigest();
       byte[] resultByteArray = messageDigest.digest();
-      return byteArrayToHex(resultByteArray);
-    } finally {
-      sw.stop();
+      return HexUtil.toHex(resultByteArray);
     }
   }
 
-  private static String byteArrayToHex(byte[] b) {
-    String hs = "";
-    String stmp = "";
-    for (int n = 0; n < b.length; n++) {
-      stmp = (Integer.toHexString(b[n] & 0XFF));
-      if (stmp.length() == 1) {
-        hs = hs + "0" + stmp;
-      } else {
-        hs = hs + stmp;
-      }
-      if (n < b.length - 1) {
-        hs = hs + "";
+  /**
+   * Digest the channel with a direct buffer from a bounded pool. The channel will NOT be closed.
+   *
+   * @param input
+   * @param algorithm
+   * @return
+   * @throws IOException
+   * @throws NoSuchAlgorithmException
+   */
+  public static String digest(ReadableByteChannel input, String algorithm) throws IOException,
+      NoSuchAlgorithmException {
+    return HexUtil.toHex(digestBytes(input, algorithm));
+  }
+
+  /**
+   * Same as {@link #digest(ReadableByteChannel, String)} but return the raw bytes.
+   */
+  public static byte[] digestBytes(ReadableByteChannel input, String algorithm) throws IOException,
+      NoSuchAlgorithmException {
+    MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
+    ByteBuffer buffer = BufferPool.DEFAULT.acquire();
+    try {
+      while (input.read(buffer) != -1) {
+        buffer.flip();
+        messageDigest.update(buffer);
+        buffer.clear();
       }
+      return messageDigest.digest();
+    } finally {
+      BufferPool.DEFAULT.release(buffer);
     }
-    return hs;
   }
 }
@@ -0,0 +1,302 @@
+package xdean.jex.util.security;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import xdean.jex.extra.collection.IntList;
+import xdean.jex.util.string.HexUtil;
+
+/**
+ * Merkle tree digest of a file. The file is split into fixed-size chunks which are hashed in parallel on a
+ * {@link ForkJoinPool}, then combined pairwise into the root digest.<br>
+ * Leaf is {@code H(0x00 || chunk)} and inner node is {@code H(0x01 || left || right)}, an odd node is promoted to the
+ * next level as is.<br>
+ * All chunk digests are retained, so that after a partial modification only the changed chunks need to be rehashed
+ * ({@link #update(long, long)}), and two files can be compared chunk by chunk ({@link #diff(TreeDigest)}).<br>
+ * This class is immutable.
+ *
+ * @author XDean
+ */
+public class TreeDigest {
+
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private static final byte LEAF = 0;
+  private static final byte NODE = 1;
+
+  public static TreeDigest of(Path file, String algorithm) throws IOException, NoSuchAlgorithmException {
+    return of(file, algorithm, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+  }
+
+  public static TreeDigest of(Path file, String algorithm, int chunkSize, ForkJoinPool pool)
+      throws IOException, NoSuchAlgorithmException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    MessageDigest.getInstance(algorithm);
+    TreeDigest empty = new TreeDigest(file, algorithm, chunkSize, pool, 0, new byte[0][]);
+    // all chunks are new to the empty tree
+    return empty.update(0, 0);
+  }
+
+  private final Path file;
+  private final String algorithm;
+  private final int chunkSize;
+  private final ForkJoinPool pool;
+  private final long size;
+  /**
+   * levels[0] is leaves, the last level is the root.
+   */
+  private final List<byte[][]> levels;
+
+  private TreeDigest(Path file, String algorithm, int chunkSize, ForkJoinPool pool, long size, byte[][] leaves) {
+    this.file = file;
+    this.algorithm = algorithm;
+    this.chunkSize = chunkSize;
+    this.pool = pool;
+    this.size = size;
+    this.levels = new ArrayList<>();
+    this.levels.add(leaves);
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Size of the file when it was hashed.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  public int getChunkCount() {
+    return levels.get(0).length;
+  }
+
+  public byte[] getChunkDigest(int index) {
+    return levels.get(0)[index].clone();
+  }
+
+  public byte[] getRoot() {
+    return root().clone();
+  }
+
+  public String getRootHex() {
+    return HexUtil.toHex(root());
+  }
+
+  /**
+   * Rehash the chunks covering the modified range, chunks after the end of the current file are dropped and the new
+   * appended chunks are hashed. Use {@code update(0, Files.size(file))} to rehash all.
+   *
+   * @param offset start of the modified range
+   * @param length length of the modified range
+   * @return a new TreeDigest, unchanged chunk digests are shared.
+   * @throws IOException
+   * @throws IndexOutOfBoundsException if the range is negative or out of the current file
+   */
+  public TreeDigest update(long offset, long length) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long newSize = channel.size();
+      if (offset < 0 || length < 0 || offset > newSize || length > newSize - offset) {
+        throw new IndexOutOfBoundsException(
+            String.format("Range [%d, %d + %d) out of file size %d", offset, offset, length, newSize));
+      }
+      int count = (int) ((newSize + chunkSize - 1) / chunkSize);
+      byte[][] oldLeaves = levels.get(0);
+      byte[][] leaves = Arrays.copyOf(oldLeaves, count);
+      BitSet dirty = new BitSet(count);
+      long end = offset + length;
+      int from = (int) Math.min(count, offset / chunkSize);
+      int to = (int) Math.min(count, end / chunkSize + (end % chunkSize == 0 ? 0 : 1));
+      dirty.set(from, to);
+      // the old last chunk may be partial, and the new chunks are not hashed yet
+      if (size != newSize) {
+        int oldCount = oldLeaves.length;
+        dirty.set(Math.max(0, Math.min(oldCount, count) - 1), count);
+      }
+      int[] indexes = dirty.stream().toArray();
+      try {
+        pool.invoke(new HashChunks(channel, leaves, indexes, 0, indexes.length));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      TreeDigest result = new TreeDigest(file, algorithm, chunkSize, pool, newSize, leaves);
+      if (count == oldLeaves.length) {
+        result.buildLevels(this, dirty);
+      } else {
+        result.buildLevels(null, null);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Compare chunk digests with another TreeDigest of the same algorithm and chunk size.
+   *
+   * @param other
+   * @return indexes of different chunks, chunks only exist in one side are included.
+   */
+  public int[] diff(TreeDigest other) {
+    if (!algorithm.equals(other.algorithm) || chunkSize != other.chunkSize) {
+      throw new IllegalArgumentException("Can only diff with same algorithm and chunk size.");
+    }
+    if (Arrays.equals(root(), other.root())) {
+      return new int[0];
+    }
+    byte[][] a = levels.get(0);
+    byte[][] b = other.levels.get(0);
+    IntList result = IntList.create();
+    for (int i = 0; i < Math.max(a.length, b.length); i++) {
+      if (i >= a.length || i >= b.length || !Arrays.equals(a[i], b[i])) {
+        result.add(i);
+      }
+    }
+    return result.toArray();
+  }
+
+  private byte[] root() {
+    byte[][] top = levels.get(levels.size() - 1);
+    return top[0];
+  }
+
+  /**
+   * @param old the old tree with same leaf count, or null to build all.
+   * @param dirtyLeaves changed leaves if old is not null.
+   */
+  private void buildLevels(TreeDigest old, BitSet dirtyLeaves) {
+    MessageDigest md = newDigest();
+    byte[][] current = levels.get(0);
+    if (current.length == 0) {
+      md.update(LEAF);
+      levels.add(new byte[][] { md.digest() });
+      return;
+    }
+    BitSet dirty = dirtyLeaves;
+    int level = 0;
+    while (current.length > 1) {
+      byte[][] next;
+      BitSet nextDirty = null;
+      if (old == null) {
+        next = new byte[(current.length + 1) / 2][];
+        for (int i = 0; i < next.length; i++) {
+          next[i] = combine(md, current, i);
+        }
+      } else {
+        next = old.levels.get(level + 1).clone();
+        nextDirty = new BitSet(next.length);
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+          int parent = i / 2;
+          if (!nextDirty.get(parent)) {
+            nextDirty.set(parent);
+            next[parent] = combine(md, current, parent);
+          }
+        }
+      }
+      levels.add(next);
+      current = next;
+      dirty = nextDirty;
+      level++;
+    }
+  }
+
+  private static byte[] combine(MessageDigest md, byte[][] children, int parent) {
+    int left = parent * 2;
+    if (left + 1 >= children.length) {
+      return children[left];
+    }
+    md.update(NODE);
+    md.update(children[left]);
+    md.update(children[left + 1]);
+    return md.digest();
+  }
+
+  private MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Checked when create.", e);
+    }
+  }
+
+  private class HashChunks extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final FileChannel channel;
+    final byte[][] leaves;
+    final int[] indexes;
+    final int from;
+    final int to;
+
+    HashChunks(FileChannel channel, byte[][] leaves, int[] indexes, int from, int to) {
+      this.channel = channel;
+      this.leaves = leaves;
+      this.indexes = indexes;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= 1) {
+        for (int i = from; i < to; i++) {
+          hash(indexes[i]);
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new HashChunks(channel, leaves, indexes, from, mid),
+            new HashChunks(channel, leaves, indexes, mid, to));
+      }
+    }
+
+    /**
+     * Read the chunk piece by piece into a pooled buffer, so memory doesn't depend on the chunk size.
+     */
+    private void hash(int index) {
+      MessageDigest md = newDigest();
+      md.update(LEAF);
+      long position = (long) index * chunkSize;
+      long end = position + chunkSize;
+      ByteBuffer buffer = BufferPool.DEFAULT.acquire();
+      try {
+        while (position < end) {
+          buffer.clear();
+          buffer.limit((int) Math.min(buffer.capacity(), end - position));
+          int read = channel.read(buffer, position);
+          if (read < 0) {
+            break;
+          }
+          position += read;
+          buffer.flip();
+          md.update(buffer);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        BufferPool.DEFAULT.release(buffer);
+      }
+      leaves[index] = md.digest();
+    }
+  }
+}
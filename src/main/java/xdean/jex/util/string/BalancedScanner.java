@@ -0,0 +1,307 @@
+package xdean.jex.util.string;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Single pass scanner of top-level balanced delimiter pairs. It's immutable and thread safe.
+ *
+ * <ul>
+ * <li>Several kinds of pairs can nest in each other, e.g. {@code "{"/"}"} and {@code "${"/"}"}. A close delimiter
+ * which doesn't match the innermost open one is ignored.</li>
+ * <li>The char after the escape char is never a delimiter.</li>
+ * <li>Delimiters don't overlap, the scan goes on after the end of the matched delimiter.</li>
+ * <li>Only top-level pairs are reported, as soon as they are closed. If the text ends before a top-level pair is
+ * closed, it's reported with close index -1.</li>
+ * </ul>
+ *
+ * <pre>
+ * <code>BalancedScanner scanner = BalancedScanner.builder().pair("${", "}").pair("{", "}").escape('\\').build();
+ * scanner.scan(reader, (kind, open, close) -> ...);</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see StringUtil#balancePair(String, String, String)
+ */
+public final class BalancedScanner {
+
+  /**
+   * Receive top-level pairs.
+   */
+  @FunctionalInterface
+  public interface PairHandler {
+    /**
+     * @param kind index of the pair kind, in order of {@link Builder#pair(String, String)}
+     * @param open index of the open delimiter
+     * @param close index of the close delimiter, or -1 if not closed
+     * @return false to stop scanning
+     */
+    boolean onPair(int kind, long open, long close);
+  }
+
+  /**
+   * A top-level pair.
+   */
+  public static final class Pair {
+    private final int kind;
+    private final long open;
+    private final long close;
+
+    Pair(int kind, long open, long close) {
+      this.kind = kind;
+      this.open = open;
+      this.close = close;
+    }
+
+    public int getKind() {
+      return kind;
+    }
+
+    public long getOpen() {
+      return open;
+    }
+
+    /**
+     * @return index of the close delimiter, or -1 if not closed
+     */
+    public long getClose() {
+      return close;
+    }
+
+    public boolean isClosed() {
+      return close != -1;
+    }
+
+    @Override
+    public String toString() {
+      return "Pair[" + kind + ", " + open + ", " + close + "]";
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final String[] opens;
+  private final String[] closes;
+  /**
+   * Kinds in order of open delimiter length, longest first.
+   */
+  private final int[] openOrder;
+  private final boolean hasEscape;
+  private final char escape;
+  private final int maxLength;
+
+  private BalancedScanner(Builder builder) {
+    int n = builder.opens.size();
+    this.opens = builder.opens.toArray(new String[n]);
+    this.closes = builder.closes.toArray(new String[n]);
+    this.openOrder = IntStream.range(0, n)
+        .boxed()
+        .sorted(Comparator.comparingInt((Integer k) -> opens[k].length()).reversed())
+        .mapToInt(Integer::intValue)
+        .toArray();
+    this.hasEscape = builder.hasEscape;
+    this.escape = builder.escape;
+    int max = 1;
+    for (int k = 0; k < n; k++) {
+      max = Math.max(max, Math.max(opens[k].length(), closes[k].length()));
+    }
+    this.maxLength = max;
+  }
+
+  public void scan(CharSequence text, PairHandler handler) {
+    State state = new State();
+    if (scan(state, text, 0, text.length(), true, 0, handler)) {
+      finish(state, handler);
+    }
+  }
+
+  /**
+   * Scan the reader in one pass, only a small buffer is kept in memory. The reader is not closed.
+   *
+   * @throws IOException
+   */
+  public void scan(Reader reader, PairHandler handler) throws IOException {
+    State state = new State();
+    char[] buf = new char[BUFFER_SIZE + maxLength];
+    CharBuffer window = CharBuffer.wrap(buf);
+    long base = 0;
+    int limit = 0;
+    boolean eof = false;
+    while (!eof) {
+      int read = reader.read(buf, limit, buf.length - limit);
+      if (read == -1) {
+        eof = true;
+      } else {
+        limit += read;
+        if (limit < maxLength) {
+          continue;
+        }
+      }
+      if (!scan(state, window, 0, limit, eof, base, handler)) {
+        return;
+      }
+      // keep the unscanned tail for delimiters across the boundary
+      int kept = limit - state.next;
+      System.arraycopy(buf, state.next, buf, 0, kept);
+      base += state.next;
+      limit = kept;
+    }
+    finish(state, handler);
+  }
+
+  public List<Pair> findAll(CharSequence text) {
+    List<Pair> list = new ArrayList<>();
+    scan(text, (k, o, c) -> list.add(new Pair(k, o, c)));
+    return list;
+  }
+
+  /**
+   * @return the first top-level pair, or null if there is no open delimiter
+   */
+  public Pair findFirst(CharSequence text) {
+    Pair[] result = new Pair[1];
+    scan(text, (k, o, c) -> {
+      result[0] = new Pair(k, o, c);
+      return false;
+    });
+    return result[0];
+  }
+
+  /**
+   * Scan [from, to) of the text. If not eof, stop before the last (maxLength - 1) chars which may be the start of a
+   * delimiter, and set {@link State#next} to where to continue.
+   *
+   * @return false if the handler stopped
+   */
+  private boolean scan(State state, CharSequence text, int from, int to, boolean eof, long base,
+      PairHandler handler) {
+    int safe = eof ? to : to - maxLength + 1;
+    int i = from;
+    while (i < safe) {
+      char c = text.charAt(i);
+      if (state.escaped) {
+        state.escaped = false;
+        i++;
+        continue;
+      }
+      if (hasEscape && c == escape) {
+        state.escaped = true;
+        i++;
+        continue;
+      }
+      if (state.depth > 0) {
+        String close = closes[state.kinds[state.depth - 1]];
+        if (matches(text, i, to, close)) {
+          state.depth--;
+          i += close.length();
+          if (state.depth == 0 && !handler.onPair(state.kinds[0], state.open, base + i - close.length())) {
+            return false;
+          }
+          continue;
+        }
+      }
+      int kind = matchOpen(text, i, to);
+      if (kind != -1) {
+        state.push(kind, base + i);
+        i += opens[kind].length();
+        continue;
+      }
+      i++;
+    }
+    state.next = i;
+    return true;
+  }
+
+  private void finish(State state, PairHandler handler) {
+    if (state.depth > 0) {
+      handler.onPair(state.kinds[0], state.open, -1);
+    }
+  }
+
+  private int matchOpen(CharSequence text, int index, int to) {
+    for (int k : openOrder) {
+      if (matches(text, index, to, opens[k])) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean matches(CharSequence text, int index, int to, String s) {
+    int length = s.length();
+    if (index + length > to) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (text.charAt(index + i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class State {
+    int[] kinds = new int[16];
+    int depth;
+    /**
+     * Index of the top-level open delimiter.
+     */
+    long open;
+    boolean escaped;
+    int next;
+
+    void push(int kind, long index) {
+      if (depth == 0) {
+        open = index;
+      } else if (depth == kinds.length) {
+        kinds = Arrays.copyOf(kinds, depth * 2);
+      }
+      kinds[depth++] = kind;
+    }
+  }
+
+  public static class Builder {
+    private final List<String> opens = new ArrayList<>();
+    private final List<String> closes = new ArrayList<>();
+    private boolean hasEscape;
+    private char escape;
+
+    private Builder() {
+    }
+
+    /**
+     * Add a kind of pair. The kind index is the count of pairs added before.
+     */
+    public Builder pair(String open, String close) {
+      if (open.isEmpty() || close.isEmpty()) {
+        throw new IllegalArgumentException("Delimiter can't be empty.");
+      }
+      opens.add(open);
+      closes.add(close);
+      return this;
+    }
+
+    public Builder escape(char escape) {
+      this.hasEscape = true;
+      this.escape = escape;
+      return this;
+    }
+
+    public BalancedScanner build() {
+      if (opens.isEmpty()) {
+        throw new IllegalStateException("No pair defined.");
+      }
+      return new BalancedScanner(this);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package xdean.jex.util.string;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import xdean.jex.extra.annotation.NotThreadSafe;
+
+/**
+ * Streaming Base64 (RFC 4648) codec over {@link ByteBuffer}s. Unlike {@link java.util.Base64}, input can be fed in
+ * pieces and output goes into caller supplied buffers, so a large payload can be converted with fixed memory.
+ *
+ * <pre>
+ * <code>Base64Util.Encoder encoder = Base64Util.encoder();
+ * while (channel.read(in) != -1) {
+ *   in.flip();
+ *   encoder.encode(in, out, false);
+ *   in.compact();
+ *   ...drain out...
+ * }
+ * in.flip();
+ * encoder.encode(in, out, true);</code>
+ * </pre>
+ *
+ * @author XDean
+ */
+public class Base64Util {
+
+  private static final byte[] STANDARD = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+      .getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+      .getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] STANDARD_DECODE = decodeTable(STANDARD);
+  private static final byte[] URL_DECODE = decodeTable(URL);
+  private static final byte PAD = '=';
+
+  public static Encoder encoder() {
+    return new Encoder(STANDARD, true);
+  }
+
+  public static Encoder urlEncoder() {
+    return new Encoder(URL, false);
+  }
+
+  public static Decoder decoder() {
+    return new Decoder(STANDARD_DECODE);
+  }
+
+  public static Decoder urlDecoder() {
+    return new Decoder(URL_DECODE);
+  }
+
+  /**
+   * Encoded length of n bytes with padding.
+   */
+  public static int encodedLength(int n) {
+    return (n + 2) / 3 * 4;
+  }
+
+  private static byte[] decodeTable(byte[] alphabet) {
+    byte[] table = new byte[128];
+    Arrays.fill(table, (byte) -1);
+    for (int i = 0; i < alphabet.length; i++) {
+      table[alphabet[i]] = (byte) i;
+    }
+    return table;
+  }
+
+  @NotThreadSafe
+  public static final class Encoder {
+    private final byte[] alphabet;
+    private final boolean padding;
+    private int bits;
+    private int count;
+
+    private Encoder(byte[] alphabet, boolean padding) {
+      this.alphabet = alphabet;
+      this.padding = padding;
+    }
+
+    /**
+     * Encode src into dst as much as possible. Less than 3 bytes left in src are kept in this encoder until more input
+     * comes or {@code endOfInput} is true.
+     *
+     * @param src input, position is advanced
+     * @param dst output, position is advanced
+     * @param endOfInput whether src is the last piece
+     * @return true if all input has been encoded, false if dst is full.
+     */
+    public boolean encode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+      while (true) {
+        while (count < 3 && src.hasRemaining()) {
+          bits = bits << 8 | (src.get() & 0xFF);
+          count++;
+        }
+        if (count < 3) {
+          break;
+        }
+        if (dst.remaining() < 4) {
+          return false;
+        }
+        dst.put(alphabet[bits >>> 18 & 0x3F]);
+        dst.put(alphabet[bits >>> 12 & 0x3F]);
+        dst.put(alphabet[bits >>> 6 & 0x3F]);
+        dst.put(alphabet[bits & 0x3F]);
+        bits = 0;
+        count = 0;
+      }
+      if (endOfInput && count > 0) {
+        int length = padding ? 4 : count + 1;
+        if (dst.remaining() < length) {
+          return false;
+        }
+        int b = bits << (8 * (3 - count));
+        dst.put(alphabet[b >>> 18 & 0x3F]);
+        dst.put(alphabet[b >>> 12 & 0x3F]);
+        if (count == 2) {
+          dst.put(alphabet[b >>> 6 & 0x3F]);
+        } else if (padding) {
+          dst.put(PAD);
+        }
+        if (padding) {
+          dst.put(PAD);
+        }
+        bits = 0;
+        count = 0;
+      }
+      return true;
+    }
+
+    /**
+     * Drop the pending input.
+     */
+    public void reset() {
+      bits = 0;
+      count = 0;
+    }
+  }
+
+  @NotThreadSafe
+  public static final class Decoder {
+    private final byte[] table;
+    private int bits;
+    private int count;
+    private int padding;
+
+    private Decoder(byte[] table) {
+      this.table = table;
+    }
+
+    /**
+     * Decode src into dst as much as possible. Padding is optional, but must complete the last unit if present.
+     *
+     * @param src input, position is advanced
+     * @param dst output, position is advanced
+     * @param endOfInput whether src is the last piece
+     * @return true if all input has been decoded, false if dst is full.
+     * @throws IllegalArgumentException if the input is not valid Base64
+     */
+    public boolean decode(ByteBuffer src, ByteBuffer dst, boolean endOfInput) {
+      while (src.hasRemaining()) {
+        int c = src.get(src.position());
+        if (c != PAD && count == 3 && dst.remaining() < 3) {
+          return false;
+        }
+        src.get();
+        if (c == PAD) {
+          if (count < 2 || count + padding == 4) {
+            throw new IllegalArgumentException("Unexpected padding.");
+          }
+          padding++;
+          continue;
+        }
+        int v = c >= 0 ? table[c] : -1;
+        if (v < 0 || padding > 0) {
+          throw new IllegalArgumentException("Illegal base64 char: " + (char) (c & 0xFF));
+        }
+        bits = bits << 6 | v;
+        if (++count == 4) {
+          dst.put((byte) (bits >> 16));
+          dst.put((byte) (bits >> 8));
+          dst.put((byte) bits);
+          bits = 0;
+          count = 0;
+        }
+      }
+      if (endOfInput && count > 0) {
+        if (count == 1) {
+          throw new IllegalArgumentException("Last unit does not have enough bits.");
+        }
+        if (padding > 0 && count + padding != 4) {
+          throw new IllegalArgumentException("Last unit does not have enough padding.");
+        }
+        if (dst.remaining() < count - 1) {
+          return false;
+        }
+        dst.put((byte) (bits >> (6 * count - 8)));
+        if (count == 3) {
+          dst.put((byte) (bits >> 2));
+        }
+        reset();
+      } else if (endOfInput) {
+        reset();
+      }
+      return true;
+    }
+
+    public void reset() {
+      bits = 0;
+      count = 0;
+      padding = 0;
+    }
+  }
+}
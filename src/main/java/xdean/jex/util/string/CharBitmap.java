@@ -0,0 +1,195 @@
+package xdean.jex.util.string;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Presence bitmap of all the 65536 chars, 8KB. Build it in one pass of the text, then find absent chars by
+ * {@link #nextClearBit(int)}. Set ranges to exclude them, e.g. surrogates or control chars.
+ *
+ * <pre>
+ * <code>CharBitmap used = CharBitmap.of(reader)
+ *     .set(0, 31)
+ *     .set(Character.MIN_SURROGATE, Character.MAX_SURROGATE);
+ * int placeholder = used.nextClearBit(128);</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see StringUtil#notExistChars(String)
+ */
+public final class CharBitmap {
+
+  public static final int SIZE = Character.MAX_VALUE + 1;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  public static CharBitmap create() {
+    return new CharBitmap();
+  }
+
+  public static CharBitmap of(CharSequence text) {
+    return create().setAll(text);
+  }
+
+  /**
+   * Read all chars from the reader. The reader is not closed.
+   *
+   * @throws IOException
+   */
+  public static CharBitmap of(Reader reader) throws IOException {
+    return create().setAll(reader);
+  }
+
+  private final long[] words = new long[SIZE >>> 6];
+
+  private CharBitmap() {
+  }
+
+  public CharBitmap set(char c) {
+    words[c >>> 6] |= 1L << c;
+    return this;
+  }
+
+  /**
+   * Set the range [from, to], both inclusive.
+   */
+  public CharBitmap set(int from, int to) {
+    checkIndex(from);
+    checkIndex(to);
+    if (from > to) {
+      throw new IllegalArgumentException("from > to: " + from + " > " + to);
+    }
+    int first = from >>> 6;
+    int last = to >>> 6;
+    long firstMask = -1L << from;
+    long lastMask = -1L >>> (63 - (to & 63));
+    if (first == last) {
+      words[first] |= firstMask & lastMask;
+    } else {
+      words[first] |= firstMask;
+      for (int i = first + 1; i < last; i++) {
+        words[i] = -1L;
+      }
+      words[last] |= lastMask;
+    }
+    return this;
+  }
+
+  public CharBitmap setAll(CharSequence text) {
+    for (int i = 0, n = text.length(); i < n; i++) {
+      char c = text.charAt(i);
+      words[c >>> 6] |= 1L << c;
+    }
+    return this;
+  }
+
+  /**
+   * Read all chars from the reader. The reader is not closed.
+   *
+   * @throws IOException
+   */
+  public CharBitmap setAll(Reader reader) throws IOException {
+    char[] buf = new char[BUFFER_SIZE];
+    int read;
+    while ((read = reader.read(buf)) != -1) {
+      for (int i = 0; i < read; i++) {
+        char c = buf[i];
+        words[c >>> 6] |= 1L << c;
+      }
+    }
+    return this;
+  }
+
+  public boolean get(char c) {
+    return (words[c >>> 6] & (1L << c)) != 0;
+  }
+
+  /**
+   * @return the first absent char not less than from, or -1
+   */
+  public int nextClearBit(int from) {
+    if (from < 0) {
+      from = 0;
+    }
+    if (from >= SIZE) {
+      return -1;
+    }
+    int i = from >>> 6;
+    long word = ~words[i] & (-1L << from);
+    while (true) {
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+      if (++i == words.length) {
+        return -1;
+      }
+      word = ~words[i];
+    }
+  }
+
+  /**
+   * @return the first present char not less than from, or -1
+   */
+  public int nextSetBit(int from) {
+    if (from < 0) {
+      from = 0;
+    }
+    if (from >= SIZE) {
+      return -1;
+    }
+    int i = from >>> 6;
+    long word = words[i] & (-1L << from);
+    while (true) {
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+      if (++i == words.length) {
+        return -1;
+      }
+      word = words[i];
+    }
+  }
+
+  /**
+   * Count of present chars.
+   */
+  public int cardinality() {
+    int count = 0;
+    for (long word : words) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /**
+   * Iterate absent chars from the index in ascending order. The iterator reflects later changes.
+   */
+  public PrimitiveIterator.OfInt clearChars(int from) {
+    return new PrimitiveIterator.OfInt() {
+      int next = nextClearBit(from);
+
+      @Override
+      public boolean hasNext() {
+        return next != -1;
+      }
+
+      @Override
+      public int nextInt() {
+        if (next == -1) {
+          throw new NoSuchElementException();
+        }
+        int c = next;
+        next = c + 1 < SIZE ? nextClearBit(c + 1) : -1;
+        return c;
+      }
+    };
+  }
+
+  private static void checkIndex(int index) {
+    if (index < 0 || index >= SIZE) {
+      throw new IndexOutOfBoundsException("Not a char: " + index);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package xdean.jex.util.string;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Table driven hex codec. Encode methods write into caller supplied buffers so that no intermediate String is created.
+ *
+ * @author XDean
+ */
+public class HexUtil {
+
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+  /**
+   * Two chars for every byte value.
+   */
+  private static final char[] PAIRS = new char[512];
+  private static final byte[] DECODE = new byte[128];
+  static {
+    for (int i = 0; i < 256; i++) {
+      PAIRS[2 * i] = DIGITS[i >>> 4];
+      PAIRS[2 * i + 1] = DIGITS[i & 0xF];
+    }
+    for (int i = 0; i < DECODE.length; i++) {
+      DECODE[i] = (byte) Character.digit(i, 16);
+    }
+  }
+
+  public static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    encode(bytes, 0, bytes.length, chars, 0);
+    return new String(chars);
+  }
+
+  /**
+   * Encode {@code src[off, off + len)} into {@code dst} from {@code dstOff}.
+   *
+   * @return the end index in dst
+   */
+  public static int encode(byte[] src, int off, int len, char[] dst, int dstOff) {
+    int d = dstOff;
+    for (int i = off; i < off + len; i++) {
+      int p = (src[i] & 0xFF) << 1;
+      dst[d++] = PAIRS[p];
+      dst[d++] = PAIRS[p + 1];
+    }
+    return d;
+  }
+
+  /**
+   * Encode {@code src[off, off + len)} into {@code dst} from {@code dstOff} as ASCII bytes.
+   *
+   * @return the end index in dst
+   */
+  public static int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+    int d = dstOff;
+    for (int i = off; i < off + len; i++) {
+      int p = (src[i] & 0xFF) << 1;
+      dst[d++] = (byte) PAIRS[p];
+      dst[d++] = (byte) PAIRS[p + 1];
+    }
+    return d;
+  }
+
+  /**
+   * Encode the remaining of src into dst as ASCII bytes, as much as dst can hold. Both buffers' positions are advanced.
+   *
+   * @return count of bytes consumed from src
+   */
+  public static int encode(ByteBuffer src, ByteBuffer dst) {
+    int count = Math.min(src.remaining(), dst.remaining() / 2);
+    if (src.hasArray() && dst.hasArray()) {
+      int srcPos = src.position();
+      int dstPos = dst.position();
+      encode(src.array(), src.arrayOffset() + srcPos, count, dst.array(), dst.arrayOffset() + dstPos);
+      src.position(srcPos + count);
+      dst.position(dstPos + 2 * count);
+    } else {
+      for (int i = 0; i < count; i++) {
+        int p = (src.get() & 0xFF) << 1;
+        dst.put((byte) PAIRS[p]);
+        dst.put((byte) PAIRS[p + 1]);
+      }
+    }
+    return count;
+  }
+
+  public static byte[] decode(CharSequence hex) {
+    checkLength(hex);
+    byte[] bytes = new byte[hex.length() / 2];
+    decode(hex, bytes, 0);
+    return bytes;
+  }
+
+  /**
+   * Decode the hex into dst from off. Both upper and lower case are accepted.
+   *
+   * @return the end index in dst
+   * @throws IllegalArgumentException if the hex has odd length or illegal char
+   */
+  public static int decode(CharSequence hex, byte[] dst, int off) {
+    checkLength(hex);
+    int d = off;
+    for (int i = 0; i < hex.length(); i += 2) {
+      dst[d++] = (byte) (digit(hex, i) << 4 | digit(hex, i + 1));
+    }
+    return d;
+  }
+
+  private static void checkLength(CharSequence hex) {
+    if (hex.length() % 2 != 0) {
+      throw new IllegalArgumentException("Hex string must have even length: " + hex.length());
+    }
+  }
+
+  private static int digit(CharSequence hex, int index) {
+    char c = hex.charAt(index);
+    int v = c < 128 ? DECODE[c] : -1;
+    if (v < 0) {
+      throw new IllegalArgumentException("Illegal hex char '" + c + "' at " + index);
+    }
+    return v;
+  }
+}
@@ -0,0 +1,261 @@
+package xdean.jex.util.string;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import xdean.jex.extra.collection.LongList;
+
+/**
+ * Start offsets of all lines in a text, for random access to line N. Lines are split like
+ * {@link java.io.BufferedReader#readLine()}, by {@code \n}, {@code \r} or {@code \r\n}, and a terminator at the end
+ * doesn't start a new line.
+ *
+ * <p>
+ * Files are memory mapped and scanned 8 bytes a time, offsets are in bytes. It works for ASCII compatible encodings,
+ * e.g. UTF-8 or ISO-8859-1, not UTF-16.
+ * </p>
+ *
+ * <pre>
+ * <code>LineIndex index = LineIndex.of(logFile);
+ * long start = index.getLineStart(1_000_000);
+ * int line = index.getLine(offset);</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see StringUtil#countLine(String)
+ */
+public final class LineIndex {
+
+  private static final long MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+  private static final long LFS = ONES * '\n';
+  private static final long CRS = ONES * '\r';
+
+  public static LineIndex of(CharSequence text) {
+    return scan(text, new Builder(true)).build(text.length());
+  }
+
+  public static LineIndex of(char[] text) {
+    return of(text, 0, text.length);
+  }
+
+  /**
+   * Offsets are relative to the offset.
+   */
+  public static LineIndex of(char[] text, int offset, int length) {
+    return scan(text, offset, length, new Builder(true)).build(length);
+  }
+
+  /**
+   * @throws IOException
+   */
+  public static LineIndex of(Path file) throws IOException {
+    return of(file, MAP_WINDOW_SIZE);
+  }
+
+  /**
+   * @param windowSize size of each mapped window
+   */
+  static LineIndex of(Path file, long windowSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return scan(channel, windowSize, new Builder(true)).build(channel.size());
+    }
+  }
+
+  /**
+   * Count lines without keeping the offsets.
+   */
+  public static long countLines(CharSequence text) {
+    return scan(text, new Builder(false)).count(text.length());
+  }
+
+  /**
+   * Count lines without keeping the offsets.
+   */
+  public static long countLines(char[] text, int offset, int length) {
+    return scan(text, offset, length, new Builder(false)).count(length);
+  }
+
+  /**
+   * Count lines without keeping the offsets.
+   *
+   * @throws IOException
+   */
+  public static long countLines(Path file) throws IOException {
+    return countLines(file, MAP_WINDOW_SIZE);
+  }
+
+  /**
+   * @param windowSize size of each mapped window
+   */
+  static long countLines(Path file, long windowSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return scan(channel, windowSize, new Builder(false)).count(channel.size());
+    }
+  }
+
+  private static Builder scan(CharSequence text, Builder b) {
+    for (int i = 0, n = text.length(); i < n; i++) {
+      char c = text.charAt(i);
+      if (c <= '\r') {
+        b.accept(c, i);
+      }
+    }
+    return b;
+  }
+
+  private static Builder scan(char[] text, int offset, int length, Builder b) {
+    for (int i = 0; i < length; i++) {
+      char c = text[offset + i];
+      if (c <= '\r') {
+        b.accept(c, i);
+      }
+    }
+    return b;
+  }
+
+  private static Builder scan(FileChannel channel, long windowSize, Builder b) throws IOException {
+    long size = channel.size();
+    for (long base = 0; base < size; base += windowSize) {
+      scan(channel.map(MapMode.READ_ONLY, base, Math.min(windowSize, size - base)), base, b);
+    }
+    return b;
+  }
+
+  private static void scan(ByteBuffer buffer, long base, Builder b) {
+    int n = buffer.limit();
+    int i = 0;
+    for (; i + 8 <= n; i += 8) {
+      long word = buffer.getLong(i);
+      if (hasZeroByte(word ^ LFS) || hasZeroByte(word ^ CRS)) {
+        for (int j = i; j < i + 8; j++) {
+          byte c = buffer.get(j);
+          if (c <= '\r' && c >= 0) {
+            b.accept((char) c, base + j);
+          }
+        }
+      }
+    }
+    for (; i < n; i++) {
+      byte c = buffer.get(i);
+      if (c <= '\r' && c >= 0) {
+        b.accept((char) c, base + i);
+      }
+    }
+  }
+
+  private static boolean hasZeroByte(long word) {
+    return ((word - ONES) & ~word & HIGHS) != 0;
+  }
+
+  private final LongList starts;
+  private final long length;
+
+  private LineIndex(LongList starts, long length) {
+    this.starts = starts;
+    this.length = length;
+  }
+
+  public int getLineCount() {
+    return starts.size();
+  }
+
+  /**
+   * Length of the text.
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * @param line 0-based line number
+   * @throws IndexOutOfBoundsException
+   */
+  public long getLineStart(int line) {
+    return starts.get(line);
+  }
+
+  /**
+   * Start offset of the next line, or the text length for the last line. It includes the line terminator.
+   *
+   * @throws IndexOutOfBoundsException
+   */
+  public long getLineEnd(int line) {
+    return line + 1 == starts.size() ? length : starts.get(line + 1);
+  }
+
+  /**
+   * Get the 0-based line number of the offset.
+   *
+   * @throws IndexOutOfBoundsException if the offset is not in the text
+   */
+  public int getLine(long offset) {
+    if (offset < 0 || offset >= length) {
+      throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + length);
+    }
+    int i = starts.binarySearch(offset);
+    return i >= 0 ? i : -i - 2;
+  }
+
+  @Override
+  public String toString() {
+    return "LineIndex[lines=" + getLineCount() + ", length=" + length + "]";
+  }
+
+  private static class Builder {
+    final LongList starts;
+    long count = 1;
+    long lastStart = 0;
+    long lastCR = -2;
+
+    Builder(boolean keep) {
+      starts = keep ? LongList.create(1024) : null;
+      if (keep) {
+        starts.add(0);
+      }
+    }
+
+    void accept(char c, long index) {
+      if (c == '\n') {
+        if (lastCR == index - 1) {
+          // \r\n, the line starts after \n
+          lastStart = index + 1;
+          if (starts != null) {
+            starts.set(starts.size() - 1, lastStart);
+          }
+        } else {
+          newLine(index + 1);
+        }
+      } else if (c == '\r') {
+        lastCR = index;
+        newLine(index + 1);
+      }
+    }
+
+    void newLine(long start) {
+      count++;
+      lastStart = start;
+      if (starts != null) {
+        starts.add(start);
+      }
+    }
+
+    long count(long length) {
+      // no line after the last terminator, or in empty text
+      return lastStart == length ? count - 1 : count;
+    }
+
+    LineIndex build(long length) {
+      if (lastStart == length) {
+        starts.removeIndex(starts.size() - 1);
+      }
+      starts.trimToSize();
+      return new LineIndex(starts, length);
+    }
+  }
+}
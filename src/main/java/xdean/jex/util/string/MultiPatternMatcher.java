@@ -0,0 +1,340 @@
+package xdean.jex.util.string;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Precompiled Aho-Corasick automaton to search many patterns in one pass. Compile once and reuse, it's immutable and
+ * thread safe. Searching doesn't allocate.
+ *
+ * <pre>
+ * <code>MultiPatternMatcher m = MultiPatternMatcher.of("ERROR", "WARN", "FATAL");
+ * int i = m.indexOf(line);
+ * m.forEachMatch(line, (pattern, start, end) -> ...);</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see StringUtil#firstIndexOf(String, String...)
+ */
+public final class MultiPatternMatcher {
+
+  /**
+   * Receive matches.
+   */
+  @FunctionalInterface
+  public interface MatchHandler {
+    /**
+     * @param pattern index of the pattern
+     * @param start start index of the match, inclusive
+     * @param end end index of the match, exclusive
+     * @return false to stop searching
+     */
+    boolean onMatch(int pattern, int start, int end);
+  }
+
+  public static MultiPatternMatcher of(String... patterns) {
+    return new MultiPatternMatcher(Arrays.asList(patterns), false);
+  }
+
+  public static MultiPatternMatcher of(Collection<String> patterns) {
+    return new MultiPatternMatcher(patterns, false);
+  }
+
+  /**
+   * Chars are compared like {@link String#regionMatches(boolean, int, String, int, int)} with ignoreCase.
+   */
+  public static MultiPatternMatcher ofIgnoreCase(String... patterns) {
+    return new MultiPatternMatcher(Arrays.asList(patterns), true);
+  }
+
+  public static MultiPatternMatcher ofIgnoreCase(Collection<String> patterns) {
+    return new MultiPatternMatcher(patterns, true);
+  }
+
+  private static final int ROOT = 0;
+  private static final int ASCII = 128;
+
+  private final List<String> patterns;
+  private final boolean ignoreCase;
+  private final boolean hasEmpty;
+  private final int maxLength;
+  /**
+   * Transitions of state s are edgeChars/edgeTargets[edgeStart[s], edgeStart[s + 1]), sorted by char.
+   */
+  private final int[] edgeStart;
+  private final char[] edgeChars;
+  private final int[] edgeTargets;
+  /**
+   * Transitions of root for ASCII chars, 0 if absent.
+   */
+  private final int[] rootAscii = new int[ASCII];
+  private final int[] fail;
+  private final int[] depth;
+  /**
+   * The longest and shortest pattern ending at the state, -1 if none.
+   */
+  private final int[] longestOutput;
+  private final int[] shortestOutput;
+  /**
+   * The pattern ending exactly at the state, -1 if none.
+   */
+  private final int[] pattern;
+  /**
+   * Next shorter pattern state in the suffix chain, -1 if none.
+   */
+  private final int[] nextOutput;
+  private volatile MultiPatternMatcher reversed;
+
+  private MultiPatternMatcher(Collection<String> patterns, boolean ignoreCase) {
+    this.patterns = new ArrayList<>(patterns);
+    this.ignoreCase = ignoreCase;
+    boolean empty = false;
+    int max = 0;
+    // build the trie
+    List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+    List<Integer> depths = new ArrayList<>();
+    List<Integer> ends = new ArrayList<>();
+    trie.add(new TreeMap<>());
+    depths.add(0);
+    ends.add(-1);
+    for (int p = 0; p < this.patterns.size(); p++) {
+      String s = this.patterns.get(p);
+      if (s.isEmpty()) {
+        empty = true;
+        continue;
+      }
+      max = Math.max(max, s.length());
+      int state = ROOT;
+      for (int i = 0; i < s.length(); i++) {
+        char c = fold(s.charAt(i));
+        Integer next = trie.get(state).get(c);
+        if (next == null) {
+          next = trie.size();
+          trie.add(new TreeMap<>());
+          depths.add(i + 1);
+          ends.add(-1);
+          trie.get(state).put(c, next);
+        }
+        state = next;
+      }
+      if (ends.get(state) == -1) {
+        ends.set(state, p);
+      }
+    }
+    this.hasEmpty = empty;
+    this.maxLength = max;
+    // flatten
+    int n = trie.size();
+    edgeStart = new int[n + 1];
+    edgeChars = new char[n - 1];
+    edgeTargets = new int[n - 1];
+    depth = new int[n];
+    pattern = new int[n];
+    int e = 0;
+    for (int s = 0; s < n; s++) {
+      edgeStart[s] = e;
+      depth[s] = depths.get(s);
+      pattern[s] = ends.get(s);
+      for (Map.Entry<Character, Integer> entry : trie.get(s).entrySet()) {
+        edgeChars[e] = entry.getKey();
+        edgeTargets[e] = entry.getValue();
+        e++;
+      }
+    }
+    edgeStart[n] = e;
+    for (int i = edgeStart[ROOT]; i < edgeStart[ROOT + 1]; i++) {
+      if (edgeChars[i] < ASCII) {
+        rootAscii[edgeChars[i]] = edgeTargets[i];
+      }
+    }
+    // failure links and outputs by BFS
+    fail = new int[n];
+    longestOutput = new int[n];
+    shortestOutput = new int[n];
+    nextOutput = new int[n];
+    longestOutput[ROOT] = shortestOutput[ROOT] = nextOutput[ROOT] = -1;
+    Deque<Integer> queue = new ArrayDeque<>();
+    queue.add(ROOT);
+    while (!queue.isEmpty()) {
+      int s = queue.poll();
+      for (int i = edgeStart[s]; i < edgeStart[s + 1]; i++) {
+        int t = edgeTargets[i];
+        char c = edgeChars[i];
+        if (s == ROOT) {
+          fail[t] = ROOT;
+        } else {
+          int f = fail[s];
+          int next;
+          while ((next = transit(f, c)) == -1 && f != ROOT) {
+            f = fail[f];
+          }
+          fail[t] = next == -1 ? ROOT : next;
+        }
+        int f = fail[t];
+        nextOutput[t] = pattern[f] != -1 ? f : nextOutput[f];
+        longestOutput[t] = pattern[t] != -1 ? t : longestOutput[f];
+        shortestOutput[t] = shortestOutput[f] != -1 ? shortestOutput[f] : (pattern[t] != -1 ? t : -1);
+        queue.add(t);
+      }
+    }
+  }
+
+  public List<String> getPatterns() {
+    return Collections.unmodifiableList(patterns);
+  }
+
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
+  /**
+   * Same as the min of {@link String#indexOf(String)} of all patterns.
+   *
+   * @return start index of the first match, or -1
+   */
+  public int indexOf(CharSequence text) {
+    return indexOf(text, 0);
+  }
+
+  /**
+   * Same as the min of {@link String#indexOf(String, int)} of all patterns.
+   */
+  public int indexOf(CharSequence text, int fromIndex) {
+    int from = Math.max(fromIndex, 0);
+    int length = text.length();
+    if (hasEmpty) {
+      return Math.min(from, length);
+    }
+    int best = -1;
+    int state = ROOT;
+    for (int i = from; i < length; i++) {
+      if (best != -1 && i - maxLength + 1 >= best) {
+        break;
+      }
+      state = step(state, text.charAt(i));
+      int o = longestOutput[state];
+      if (o != -1) {
+        int start = i - depth[o] + 1;
+        if (best == -1 || start < best) {
+          best = start;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Same as the max of {@link String#lastIndexOf(String)} of all patterns. The reversed automaton is compiled at the
+   * first call and kept.
+   *
+   * @return start index of the last match, or -1
+   */
+  public int lastIndexOf(CharSequence text) {
+    int length = text.length();
+    if (hasEmpty) {
+      return length;
+    }
+    MultiPatternMatcher r = reversed();
+    // scan backward, the first match found has the biggest start index
+    int state = ROOT;
+    for (int i = length - 1; i >= 0; i--) {
+      state = r.step(state, text.charAt(i));
+      if (r.longestOutput[state] != -1) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Report all matches, including overlapped ones, ordered by end index then by length (longest first).
+   */
+  public void forEachMatch(CharSequence text, MatchHandler handler) {
+    int state = ROOT;
+    for (int i = 0; i < text.length(); i++) {
+      state = step(state, text.charAt(i));
+      for (int o = longestOutput[state]; o != -1; o = nextOutput[o]) {
+        if (!handler.onMatch(pattern[o], i - depth[o] + 1, i + 1)) {
+          return;
+        }
+      }
+    }
+  }
+
+  public boolean containsAny(CharSequence text) {
+    if (hasEmpty) {
+      return true;
+    }
+    int state = ROOT;
+    for (int i = 0; i < text.length(); i++) {
+      state = step(state, text.charAt(i));
+      if (shortestOutput[state] != -1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "MultiPatternMatcher" + patterns;
+  }
+
+  private int step(int state, char ch) {
+    char c = fold(ch);
+    int next;
+    while ((next = transit(state, c)) == -1 && state != ROOT) {
+      state = fail[state];
+    }
+    return next == -1 ? ROOT : next;
+  }
+
+  private int transit(int state, char c) {
+    if (state == ROOT && c < ASCII) {
+      int t = rootAscii[c];
+      return t == 0 ? -1 : t;
+    }
+    int low = edgeStart[state];
+    int high = edgeStart[state + 1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char m = edgeChars[mid];
+      if (m < c) {
+        low = mid + 1;
+      } else if (m > c) {
+        high = mid - 1;
+      } else {
+        return edgeTargets[mid];
+      }
+    }
+    return -1;
+  }
+
+  private char fold(char c) {
+    return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+  }
+
+  private MultiPatternMatcher reversed() {
+    MultiPatternMatcher r = reversed;
+    if (r == null) {
+      List<String> list = new ArrayList<>(patterns.size());
+      for (String p : patterns) {
+        // reverse raw chars, surrogate pairs too, as the text is scanned backward char by char
+        char[] cs = new char[p.length()];
+        for (int i = 0; i < cs.length; i++) {
+          cs[i] = p.charAt(cs.length - 1 - i);
+        }
+        list.add(new String(cs));
+      }
+      reversed = r = new MultiPatternMatcher(list, ignoreCase);
+    }
+    return r;
+  }
+}
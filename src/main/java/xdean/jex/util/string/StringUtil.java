@@ -1,34 +1,42 @@
 package xdean.jex.util.string;
 
-import java.util.Base64;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
-import java.util.stream.Stream;
-
-import xdean.jex.extra.collection.IntList;
-import xdean.jex.util.cache.CacheUtil;
-
-import com.google.common.collect.Ordering;
+import java.util.PrimitiveIterator;
 
 public class StringUtil {
 
   /**
    * Get a list of not exist chars in given string. You can use these chars as placeholder to replace string safety.
+   * Chars not greater than 128 and surrogates are never returned.
    *
    * @param s
    * @return
    */
   public static Iterator<Character> notExistChars(String s) {
-    return new Iterator<Character>() {
-      IntList collect = IntList.create(s.chars().distinct().sorted().toArray());
-      int current = 128;
-      Character next = null;
+    return notExistChars(CharBitmap.of(s));
+  }
+
+  /**
+   * Same as {@link #notExistChars(String)}, but read the text from the reader. The reader is not closed.
+   *
+   * @throws IOException
+   */
+  public static Iterator<Character> notExistChars(Reader reader) throws IOException {
+    return notExistChars(CharBitmap.of(reader));
+  }
 
+  private static Iterator<Character> notExistChars(CharBitmap used) {
+    used.set(0, 128).set(Character.MIN_SURROGATE, Character.MAX_SURROGATE);
+    PrimitiveIterator.OfInt free = used.clearChars(129);
+    return new Iterator<Character>() {
       @Override
       public Character next() {
-        if (calcNext()) {
-          Character c = next;
-          next = null;
-          return c;
+        if (free.hasNext()) {
+          return (char) free.nextInt();
         } else {
           throw new IllegalStateException("No next not exist char.");
         }
@@ -36,20 +44,7 @@ public class StringUtil {
 
       @Override
       public boolean hasNext() {
-        return calcNext();
-      }
-
-      private boolean calcNext() {
-        if (next == null) {
-          while (++current < Integer.MAX_VALUE) {
-            if (collect.remove(current) == false) {
-              next = (char) current;
-              return true;
-            }
-          }
-          return false;
-        }
-        return true;
+        return free.hasNext();
       }
     };
   }
@@ -62,20 +57,36 @@ public class StringUtil {
     return sb.toString();
   }
 
+  /**
+   * Get the first index of any of the targets. It doesn't allocate, but searches the string once per target. To search
+   * the same many targets again and again, compile them once by {@link MultiPatternMatcher#of(String...)} and use
+   * {@link MultiPatternMatcher#indexOf(CharSequence)}.
+   */
   public static int firstIndexOf(String str, String... ts) {
-    return Stream.of(ts)
-        .map(str::indexOf)
-        .filter(i -> i != -1)
-        .min(Ordering.natural())
-        .orElse(-1);
+    int min = -1;
+    for (String t : ts) {
+      int i = str.indexOf(t);
+      if (i != -1 && (min == -1 || i < min)) {
+        min = i;
+        if (min == 0) {
+          break;
+        }
+      }
+    }
+    return min;
   }
 
+  /**
+   * Get the last index of any of the targets. It doesn't allocate, but searches the string once per target. To search
+   * the same many targets again and again, compile them once by {@link MultiPatternMatcher#of(String...)} and use
+   * {@link MultiPatternMatcher#lastIndexOf(CharSequence)}.
+   */
   public static int lastIndexOf(String str, String... ts) {
-    return Stream.of(ts)
-        .map(str::lastIndexOf)
-        .filter(i -> i != -1)
-        .max(Ordering.natural())
-        .orElse(-1);
+    int max = -1;
+    for (String t : ts) {
+      max = Math.max(max, str.lastIndexOf(t));
+    }
+    return max;
   }
 
   public static String replacePart(String sourceText, int from, int to, String replaceText) {
@@ -104,14 +115,22 @@ public class StringUtil {
    * @param left left symbol
    * @param right right symbol
    * @return (leftIndex, rightIndex) If not found, rightIndex is -1.
+   * @see BalancedScanner
    */
   public static int[] balancePair(String str, String left, String right) {
     int count = 0;
     int offset = 0;
     int firstLeft = -1;
+    int leftIndex = -2;
+    int rightIndex = -2;
     while (true) {
-      int leftIndex = str.indexOf(left, offset);
-      int rightIndex = str.indexOf(right, offset);
+      // only search again the consumed one, the other is still the first after offset
+      if (leftIndex != -1 && leftIndex < offset) {
+        leftIndex = str.indexOf(left, offset);
+      }
+      if (rightIndex != -1 && rightIndex < offset) {
+        rightIndex = str.indexOf(right, offset);
+      }
       if (leftIndex == rightIndex) {
         return new int[] { firstLeft, -1 };
       } else if ((leftIndex < rightIndex && leftIndex != -1) || rightIndex == -1) {
@@ -137,8 +156,44 @@ public class StringUtil {
     return c < 32 || c == 127;
   }
 
+  /**
+   * Same as {@code str.split("\\R").length} without regex and substrings: trailing empty lines are not counted, and a
+   * string without line break is 1 line.
+   *
+   * @see LineIndex
+   */
   public static int countLine(String str) {
-    return str.split("\\R").length;
+    int segment = 0;
+    int lastNotEmpty = -1;
+    boolean empty = true;
+    boolean split = false;
+    for (int i = 0, n = str.length(); i < n; i++) {
+      char c = str.charAt(i);
+      if (isLineBreak(c)) {
+        if (c == '\r' && i + 1 < n && str.charAt(i + 1) == '\n') {
+          i++;
+        }
+        if (!empty) {
+          lastNotEmpty = segment;
+        }
+        segment++;
+        empty = true;
+        split = true;
+      } else {
+        empty = false;
+      }
+    }
+    if (!empty) {
+      lastNotEmpty = segment;
+    }
+    return split ? lastNotEmpty + 1 : 1;
+  }
+
+  /**
+   * If the char is matched by regex {@code \R}.
+   */
+  private static boolean isLineBreak(char c) {
+    return (c >= '\n' && c <= '\r') || c == '\u0085' || c == '\u2028' || c == '\u2029';
   }
 
   public static boolean isEmpty(String str) {
@@ -157,17 +212,52 @@ public class StringUtil {
     return indexOfIgnoreCase(str, target, 0);
   }
 
+  /**
+   * Like {@link String#indexOf(String, int)} but compare chars as
+   * {@link String#regionMatches(boolean, int, String, int, int)} ignoring case.
+   */
   public static int indexOfIgnoreCase(String str, String target, int startIndex) {
-    return CacheUtil.cache(str, "lowerCase", () -> str.toLowerCase())
-        .indexOf(CacheUtil.cache(target, "lowerCase", () -> target.toLowerCase()), startIndex);
+    int length = target.length();
+    int max = str.length() - length;
+    int from = Math.max(startIndex, 0);
+    if (length == 0) {
+      return Math.min(from, str.length());
+    }
+    char first = target.charAt(0);
+    char upper = Character.toUpperCase(first);
+    char lower = Character.toLowerCase(upper);
+    for (int i = from; i <= max; i++) {
+      char c = str.charAt(i);
+      if (c != first && c != upper && c != lower) {
+        c = Character.toUpperCase(c);
+        if (c != upper && Character.toLowerCase(c) != lower) {
+          continue;
+        }
+      }
+      if (str.regionMatches(true, i + 1, target, 1, length - 1)) {
+        return i;
+      }
+    }
+    return -1;
   }
 
+  /**
+   * Base64 encode the UTF-8 bytes of the string.
+   */
   public static String encode(String str) {
-    return new String(Base64.getEncoder().encode(str.getBytes()));
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer out = ByteBuffer.allocate(Base64Util.encodedLength(bytes.length));
+    Base64Util.encoder().encode(ByteBuffer.wrap(bytes), out, true);
+    return new String(out.array(), 0, out.position(), StandardCharsets.ISO_8859_1);
   }
 
+  /**
+   * Base64 decode the string and read the result as UTF-8.
+   */
   public static String decode(String str) {
-    return new String(Base64.getDecoder().decode(str.getBytes()));
+    ByteBuffer out = ByteBuffer.allocate(str.length() / 4 * 3 + 3);
+    Base64Util.decoder().decode(ByteBuffer.wrap(str.getBytes(StandardCharsets.ISO_8859_1)), out, true);
+    return new String(out.array(), 0, out.position(), StandardCharsets.UTF_8);
   }
 
   public static String camelToUnderline(String param) {
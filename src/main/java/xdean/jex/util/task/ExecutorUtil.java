@@ -0,0 +1,51 @@
+package xdean.jex.util.task;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Utility methods for executors.
+ *
+ * @author XDean
+ */
+@Slf4j
+public class ExecutorUtil {
+
+  private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+  /**
+   * If the running JVM supports virtual threads (Java 21+).
+   */
+  public static boolean isVirtualThreadSupported() {
+    return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+  }
+
+  /**
+   * Create an executor starting a new virtual thread for each task.
+   *
+   * @return empty if the running JVM doesn't support virtual threads
+   */
+  public static Optional<ExecutorService> newVirtualThreadExecutor() {
+    if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of((ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null));
+    } catch (ReflectiveOperationException e) {
+      log.warn("Fail to create virtual thread executor.", e);
+      return Optional.empty();
+    }
+  }
+
+  private static Method findVirtualThreadExecutor() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package xdean.jex.util.task;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A named pool running tasks as {@link CompletableFuture}s, with a bounded queue and metrics.
+ *
+ * <pre>
+ * <code>TaskPool pool = TaskPool.builder("io").threads(16).queueSize(1000).rejectPolicy(RejectPolicy.ABORT).build();
+ * pool.submit(() -> load()).thenAccept(...);</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see TaskUtil#async(Runnable)
+ */
+public class TaskPool implements Executor, AutoCloseable {
+
+  /**
+   * What to do when the queue is full.
+   */
+  public enum RejectPolicy {
+    /**
+     * The future fails with {@link RejectedExecutionException}.
+     */
+    ABORT,
+    /**
+     * Run the task in the submitting thread. The call is no longer asynchronous, use it explicitly.
+     */
+    CALLER_RUNS,
+    /**
+     * Cancel the oldest queued task and queue the new one.
+     */
+    DISCARD_OLDEST,
+    /**
+     * Wait for space in the queue up to {@link Builder#blockTimeout(long, TimeUnit)}, then fail like {@link #ABORT}.
+     */
+    BLOCK
+  }
+
+  public static Builder builder(String name) {
+    return new Builder(name);
+  }
+
+  /**
+   * Create a pool starting a virtual thread for each task. If the JVM doesn't support virtual threads, use a bounded
+   * pool of {@link Builder} defaults instead.
+   *
+   * @see ExecutorUtil#isVirtualThreadSupported()
+   */
+  public static TaskPool virtual(String name) {
+    return ExecutorUtil.newVirtualThreadExecutor()
+        .map(e -> new TaskPool(name, e, true))
+        .orElseGet(() -> builder(name).build());
+  }
+
+  private final String name;
+  private final ExecutorService executor;
+  private final boolean virtual;
+  private final AtomicInteger active = new AtomicInteger();
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  private TaskPool(String name, ExecutorService executor, boolean virtual) {
+    this.name = name;
+    this.executor = executor;
+    this.virtual = virtual;
+  }
+
+  public CompletableFuture<Void> submit(Runnable task) {
+    return submit(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  public <T> CompletableFuture<T> submit(Supplier<T> task) {
+    Task<T> t = new Task<>(task, false);
+    submitted.increment();
+    try {
+      executor.execute(t);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      t.future.completeExceptionally(e);
+    }
+    return t.future;
+  }
+
+  /**
+   * Unlike {@link #submit(Runnable)}, throw {@link RejectedExecutionException} if rejected. Like
+   * {@link ThreadPoolExecutor}, a failure of the task is passed to the uncaught exception handler of the running thread.
+   */
+  @Override
+  public void execute(Runnable command) {
+    submitted.increment();
+    try {
+      executor.execute(new Task<Void>(() -> {
+        command.run();
+        return null;
+      }, true));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw e;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  public int getActiveCount() {
+    return active.get();
+  }
+
+  public int getQueueSize() {
+    return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+  }
+
+  public long getSubmittedCount() {
+    return submitted.sum();
+  }
+
+  public long getCompletedCount() {
+    return completed.sum();
+  }
+
+  /**
+   * Count of tasks failed or cancelled because of rejection.
+   */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Stop accepting tasks, submitted tasks still run.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  @Override
+  public void close() {
+    shutdown();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TaskPool[%s, active=%d, queue=%d, submitted=%d, completed=%d, rejected=%d]",
+        name, getActiveCount(), getQueueSize(), getSubmittedCount(), getCompletedCount(), getRejectedCount());
+  }
+
+  private class Task<T> implements Runnable {
+    final Supplier<T> body;
+    final boolean uncaught;
+    final CompletableFuture<T> future = new CompletableFuture<>();
+
+    Task(Supplier<T> body, boolean uncaught) {
+      this.body = body;
+      this.uncaught = uncaught;
+    }
+
+    @Override
+    public void run() {
+      if (future.isDone()) {
+        return;
+      }
+      active.incrementAndGet();
+      try {
+        future.complete(body.get());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+        if (uncaught) {
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      } finally {
+        active.decrementAndGet();
+        completed.increment();
+      }
+    }
+  }
+
+  private class DiscardOldest implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+      if (e.isShutdown()) {
+        throw new RejectedExecutionException("Pool " + name + " is shut down.");
+      }
+      Runnable oldest = e.getQueue().poll();
+      if (oldest instanceof Task) {
+        rejected.increment();
+        ((Task<?>) oldest).future.completeExceptionally(
+            new RejectedExecutionException("Discarded by newer task in pool " + name));
+      }
+      e.execute(r);
+    }
+  }
+
+  private class Block implements RejectedExecutionHandler {
+    final long timeoutNanos;
+
+    Block(long timeoutNanos) {
+      this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+      if (e.isShutdown()) {
+        throw new RejectedExecutionException("Pool " + name + " is shut down.");
+      }
+      try {
+        if (!e.getQueue().offer(r, timeoutNanos, TimeUnit.NANOSECONDS)) {
+          throw new RejectedExecutionException("Pool " + name + " is still full after blocking.");
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException("Interrupted when waiting for pool " + name, ie);
+      }
+    }
+  }
+
+  public static class Builder {
+    private final String name;
+    private int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private int queueSize = 1024;
+    private RejectPolicy rejectPolicy = RejectPolicy.BLOCK;
+    private long blockTimeoutNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private Builder(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Default is max(4, 2 * processors).
+     */
+    public Builder threads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("Threads must be positive: " + threads);
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Default is 1024.
+     */
+    public Builder queueSize(int queueSize) {
+      if (queueSize < 1) {
+        throw new IllegalArgumentException("Queue size must be positive: " + queueSize);
+      }
+      this.queueSize = queueSize;
+      return this;
+    }
+
+    /**
+     * Default is {@link RejectPolicy#BLOCK}.
+     */
+    public Builder rejectPolicy(RejectPolicy rejectPolicy) {
+      this.rejectPolicy = rejectPolicy;
+      return this;
+    }
+
+    /**
+     * Max time to wait for the queue of {@link RejectPolicy#BLOCK}. Default is 1 second.
+     */
+    public Builder blockTimeout(long timeout, TimeUnit unit) {
+      if (timeout < 0) {
+        throw new IllegalArgumentException("Timeout can't be negative: " + timeout);
+      }
+      this.blockTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    public TaskPool build() {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(queueSize),
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat(name + "-%d")
+              .build());
+      executor.allowCoreThreadTimeOut(true);
+      TaskPool pool = new TaskPool(name, executor, false);
+      switch (rejectPolicy) {
+      case CALLER_RUNS:
+        executor.setRejectedExecutionHandler((r, e) -> {
+          if (e.isShutdown()) {
+            throw new RejectedExecutionException("Pool " + name + " is shut down.");
+          }
+          r.run();
+        });
+        break;
+      case DISCARD_OLDEST:
+        executor.setRejectedExecutionHandler(pool.new DiscardOldest());
+        break;
+      case BLOCK:
+        executor.setRejectedExecutionHandler(pool.new Block(blockTimeoutNanos));
+        break;
+      default:
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        break;
+      }
+      return pool;
+    }
+  }
+}
@@ -0,0 +1,284 @@
+package xdean.jex.util.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import xdean.jex.extra.annotation.NotThreadSafe;
+import xdean.jex.extra.function.SupplierThrow;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Race tasks in parallel, the first accepted result wins and the other tasks are cancelled (interrupted).
+ *
+ * <ul>
+ * <li>Without hedge, all tasks start at once. With {@link #hedge(long, TimeUnit)}, tasks start one by one, the next
+ * one starts when the previous one failed or the hedge delay elapsed.</li>
+ * <li>With {@link #timeout(long, TimeUnit)}, a task failed with {@link TimeoutException} if it runs too long.</li>
+ * <li>If no task succeeds, the result fails with {@link IllegalStateException}, all failures are added as
+ * suppressed.</li>
+ * </ul>
+ *
+ * <pre>
+ * <code>TaskRace.of(() -> primary.get(key), () -> replica.get(key))
+ *     .hedge(50, TimeUnit.MILLISECONDS)
+ *     .timeout(1, TimeUnit.SECONDS)
+ *     .start();</code>
+ * </pre>
+ *
+ * @author XDean
+ * @see TaskUtil#firstSuccessAsync(SupplierThrow...)
+ */
+@NotThreadSafe
+public class TaskRace<T> {
+
+  private static final ScheduledThreadPoolExecutor TIMER;
+  static {
+    TIMER = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("TaskRace-Timer")
+        .setThreadFactory(TimerThread::new)
+        .build());
+    TIMER.setRemoveOnCancelPolicy(true);
+  }
+
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public static <T> TaskRace<T> of(SupplierThrow<? extends T, ?>... tasks) {
+    return of(Arrays.asList(tasks));
+  }
+
+  public static <T> TaskRace<T> of(List<? extends SupplierThrow<? extends T, ?>> tasks) {
+    return new TaskRace<>(tasks);
+  }
+
+  private final List<SupplierThrow<? extends T, ?>> tasks;
+  private Executor executor;
+  private long timeoutNanos;
+  private long hedgeNanos;
+  private Predicate<? super T> accept = t -> true;
+
+  private TaskRace(List<? extends SupplierThrow<? extends T, ?>> tasks) {
+    this.tasks = new ArrayList<>(tasks);
+  }
+
+  /**
+   * Executor to run tasks. Default is {@link TaskUtil#getAsyncPool()}.
+   * <p>
+   * Hedged tasks are launched from a timer thread shared by all races. If the executor runs such a task in the
+   * launching thread, e.g. a saturated pool with caller-runs policy, the task fails with
+   * {@link RejectedExecutionException} instead of blocking the timer. An executor blocking when saturated, like the
+   * default one, may delay the timer up to its block timeout, use an executor with {@link TaskPool.RejectPolicy#ABORT}
+   * if that matters.
+   * </p>
+   */
+  public TaskRace<T> executor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Max running time of each task. Default is no timeout.
+   */
+  public TaskRace<T> timeout(long timeout, TimeUnit unit) {
+    this.timeoutNanos = unit.toNanos(timeout);
+    return this;
+  }
+
+  /**
+   * Start the tasks one by one with the delay, instead of all at once.
+   */
+  public TaskRace<T> hedge(long delay, TimeUnit unit) {
+    this.hedgeNanos = unit.toNanos(delay);
+    return this;
+  }
+
+  /**
+   * Only results matched by the predicate can win. Default accepts all results, including null.
+   */
+  public TaskRace<T> accept(Predicate<? super T> accept) {
+    this.accept = accept;
+    return this;
+  }
+
+  /**
+   * Start the race. Cancel the returned future to cancel all tasks.
+   */
+  public CompletableFuture<T> start() {
+    return new Race(executor == null ? TaskUtil.getAsyncPool() : executor, timeoutNanos, hedgeNanos, accept)
+        .start();
+  }
+
+  private class Race {
+    final Executor executor;
+    final long timeoutNanos;
+    final long hedgeNanos;
+    final Predicate<? super T> accept;
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    final List<Attempt> attempts = new ArrayList<>();
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicInteger finished = new AtomicInteger();
+    final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    final AtomicReference<ScheduledFuture<?>> hedgeTimer = new AtomicReference<>();
+
+    Race(Executor executor, long timeoutNanos, long hedgeNanos, Predicate<? super T> accept) {
+      this.executor = executor;
+      this.timeoutNanos = timeoutNanos;
+      this.hedgeNanos = hedgeNanos;
+      this.accept = accept;
+      for (SupplierThrow<? extends T, ?> task : tasks) {
+        attempts.add(new Attempt(task));
+      }
+    }
+
+    CompletableFuture<T> start() {
+      if (attempts.isEmpty()) {
+        result.completeExceptionally(new IllegalStateException("No task to run"));
+        return result;
+      }
+      result.whenComplete((r, e) -> cancelAll());
+      if (hedgeNanos > 0) {
+        launchNext();
+      } else {
+        attempts.forEach(Attempt::launch);
+      }
+      return result;
+    }
+
+    void launchNext() {
+      int i = next.getAndIncrement();
+      if (i >= attempts.size() || result.isDone()) {
+        return;
+      }
+      if (i + 1 < attempts.size()) {
+        ScheduledFuture<?> old = hedgeTimer.getAndSet(
+            TIMER.schedule(this::launchNext, hedgeNanos, TimeUnit.NANOSECONDS));
+        if (old != null) {
+          old.cancel(false);
+        }
+      }
+      attempts.get(i).launch();
+    }
+
+    void onFinish(T value, Throwable error) {
+      if (error == null && accept.test(value)) {
+        result.complete(value);
+        return;
+      }
+      if (error != null) {
+        failures.add(error);
+      }
+      if (finished.incrementAndGet() == attempts.size()) {
+        IllegalStateException e = new IllegalStateException("All tasks failed");
+        failures.forEach(e::addSuppressed);
+        result.completeExceptionally(e);
+      } else if (hedgeNanos > 0) {
+        launchNext();
+      }
+    }
+
+    void cancelAll() {
+      ScheduledFuture<?> timer = hedgeTimer.getAndSet(null);
+      if (timer != null) {
+        timer.cancel(false);
+      }
+      attempts.forEach(Attempt::cancel);
+    }
+
+    private class Attempt implements Runnable {
+      final SupplierThrow<? extends T, ?> task;
+      final AtomicBoolean done = new AtomicBoolean();
+      volatile ScheduledFuture<?> timeout;
+      Thread runner;
+
+      Attempt(SupplierThrow<? extends T, ?> task) {
+        this.task = task;
+      }
+
+      void launch() {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          finish(null, e);
+        }
+      }
+
+      @Override
+      public void run() {
+        if (Thread.currentThread() instanceof TimerThread) {
+          finish(null, new RejectedExecutionException("Executor is saturated, can't run task in the timer thread"));
+          return;
+        }
+        // set runner before check, so that a cancel after the check can interrupt it
+        synchronized (this) {
+          runner = Thread.currentThread();
+        }
+        if (done.get()) {
+          synchronized (this) {
+            runner = null;
+          }
+          return;
+        }
+        if (timeoutNanos > 0) {
+          timeout = TIMER.schedule(() -> {
+            finish(null, new TimeoutException("Task timeout"));
+            interrupt();
+          }, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        try {
+          finish(task.get(), null);
+        } catch (Throwable e) {
+          finish(null, e);
+        } finally {
+          synchronized (this) {
+            runner = null;
+          }
+          // don't leave the pool thread interrupted
+          Thread.interrupted();
+        }
+      }
+
+      void finish(T value, Throwable error) {
+        if (done.compareAndSet(false, true)) {
+          ScheduledFuture<?> t = timeout;
+          if (t != null) {
+            t.cancel(false);
+          }
+          onFinish(value, error);
+        }
+      }
+
+      void cancel() {
+        done.set(true);
+        interrupt();
+      }
+
+      synchronized void interrupt() {
+        // the winner cancels others in its own thread
+        if (runner != null && runner != Thread.currentThread()) {
+          runner.interrupt();
+        }
+      }
+    }
+  }
+
+  private static class TimerThread extends Thread {
+    TimerThread(Runnable r) {
+      super(r);
+    }
+  }
+}
@@ -2,12 +2,13 @@ package xdean.jex.util.task;
 
 import static xdean.jex.util.lang.ExceptionUtil.*;
 
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
-import rx.Observable;
-import rx.schedulers.Schedulers;
 import xdean.jex.extra.Either;
 import xdean.jex.extra.function.RunnableThrow;
 import xdean.jex.extra.function.SupplierThrow;
@@ -20,8 +21,56 @@ import xdean.jex.extra.function.SupplierThrow;
  */
 public class TaskUtil {
 
+  private static volatile TaskPool asyncPool = createAsyncPool();
+
+  /**
+   * Run the task in the async pool. Fire and forget, a failure is passed to the uncaught exception handler of the
+   * running thread.
+   *
+   * @throws RejectedExecutionException if the pool rejects the task
+   * @see #asyncRun(Runnable)
+   * @see #setAsyncPool(TaskPool)
+   */
   public static void async(Runnable task) {
-    Observable.just(task).observeOn(Schedulers.newThread()).subscribe(r -> r.run());
+    asyncPool.execute(task);
+  }
+
+  /**
+   * Run the task in the async pool, the returned future completes when the task is done or failed.
+   *
+   * @see #setAsyncPool(TaskPool)
+   */
+  public static CompletableFuture<Void> asyncRun(Runnable task) {
+    return asyncPool.submit(task);
+  }
+
+  /**
+   * Get the task's result in the async pool.
+   *
+   * @see #setAsyncPool(TaskPool)
+   */
+  public static <T> CompletableFuture<T> asyncGet(Supplier<T> task) {
+    return asyncPool.submit(task);
+  }
+
+  /**
+   * The pool used by {@link #async(Runnable)}. By default it's a bounded pool, when the queue is full the caller waits
+   * up to 1 second, then the task is rejected. Tasks never run in the caller thread. Configured by system properties:
+   * <ul>
+   * <li>{@code xdean.jex.async.threads}: thread count, default max(4, 2 * processors)</li>
+   * <li>{@code xdean.jex.async.queue}: queue size, default 1024</li>
+   * <li>{@code xdean.jex.async.virtual}: use virtual threads if supported, default false</li>
+   * </ul>
+   */
+  public static TaskPool getAsyncPool() {
+    return asyncPool;
+  }
+
+  /**
+   * Replace the async pool. The old pool is not shut down.
+   */
+  public static void setAsyncPool(TaskPool pool) {
+    asyncPool = pool;
   }
 
   public static void todoAll(Runnable... tasks) {
@@ -67,6 +116,35 @@ public class TaskUtil {
     return Optional.empty();
   }
 
+  /**
+   * Parallel version of {@link #firstSuccess(SupplierThrow...)}. Race the tasks in the async pool, return the first
+   * result and cancel others.
+   *
+   * @return fails with {@link IllegalStateException} if all tasks failed
+   * @see TaskRace
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public static <T> CompletableFuture<T> firstSuccessAsync(SupplierThrow<T, ?>... tasks) {
+    return TaskRace.of(tasks).start();
+  }
+
+  /**
+   * Parallel version of {@link #firstNonNull(SupplierThrow...)}. Race the tasks in the async pool, return the first
+   * non-null result and cancel others.<br>
+   * IGNORE EXCEPTIONS.
+   *
+   * @see TaskRace
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public static <T> CompletableFuture<Optional<T>> firstNonNullAsync(SupplierThrow<T, ?>... tasks) {
+    return TaskRace.<T> of(tasks)
+        .accept(Objects::nonNull)
+        .start()
+        .handle((r, e) -> Optional.ofNullable(r));
+  }
+
   /**
    * Run the given tasks until any exception happen
    *
@@ -106,4 +184,18 @@ public class TaskUtil {
       then.accept(t);
     }
   }
+
+  private static TaskPool createAsyncPool() {
+    if (Boolean.getBoolean("xdean.jex.async.virtual")) {
+      return TaskPool.virtual("TaskUtil-async");
+    }
+    TaskPool.Builder builder = TaskPool.builder("TaskUtil-async");
+    Integer threads = Integer.getInteger("xdean.jex.async.threads");
+    if (threads != null) {
+      builder.threads(threads);
+    }
+    return builder.queueSize(Integer.getInteger("xdean.jex.async.queue", 1024))
+        .rejectPolicy(TaskPool.RejectPolicy.BLOCK)
+        .build();
+  }
 }
@@ -0,0 +1,255 @@
+package xdean.jex.util.time;
+
+import java.time.format.DateTimeParseException;
+
+/**
+ * A {@link DateTimeFormat} caching the text of the current minute or second, for timestamps mostly in the same
+ * second, such as logs. Only the second and millisecond digits are written for each call. The parser recognizes the
+ * cached text and only reads the digits.
+ *
+ * <p>
+ * The cache is per minute if the pattern has 2-digit seconds ({@code ss}), with or without 3-digit millis
+ * ({@code SSS}). Otherwise it's per second if the pattern has {@code SSS} or no sub-second field. Other patterns, e.g.
+ * with {@code S} or {@code SS}, are not cached.
+ * </p>
+ *
+ * <pre>
+ * <code>CachedDateTimeFormat f = CachedDateTimeFormat.of(DateTimeFormat.of("yyyy-MM-dd HH:mm:ss.SSS"));
+ * f.formatTo(System.currentTimeMillis(), sb);</code>
+ * </pre>
+ *
+ * @author XDean
+ */
+public class CachedDateTimeFormat {
+
+  public static CachedDateTimeFormat of(DateTimeFormat format) {
+    return new CachedDateTimeFormat(format);
+  }
+
+  private final DateTimeFormat format;
+  private volatile Entry formatCache;
+  private volatile Entry parseCache;
+  private volatile boolean cacheable = true;
+
+  private CachedDateTimeFormat(DateTimeFormat format) {
+    this.format = format;
+  }
+
+  public DateTimeFormat getFormat() {
+    return format;
+  }
+
+  public String format(long epochMillis) {
+    Entry e = formatEntry(epochMillis);
+    if (e == null) {
+      return format.format(epochMillis);
+    }
+    char[] cs = e.text.clone();
+    e.fill(epochMillis, cs, 0);
+    return new String(cs);
+  }
+
+  public StringBuilder formatTo(long epochMillis, StringBuilder sb) {
+    Entry e = formatEntry(epochMillis);
+    if (e == null) {
+      return format.formatTo(epochMillis, sb);
+    }
+    int start = sb.length();
+    sb.append(e.text);
+    e.fill(epochMillis, sb, start);
+    return sb;
+  }
+
+  /**
+   * @return count of chars written
+   * @throws IndexOutOfBoundsException if the array is too small
+   */
+  public int formatTo(long epochMillis, char[] dst, int offset) {
+    Entry e = formatEntry(epochMillis);
+    if (e == null) {
+      return format.formatTo(epochMillis, dst, offset);
+    }
+    System.arraycopy(e.text, 0, dst, offset, e.text.length);
+    e.fill(epochMillis, dst, offset);
+    return e.text.length;
+  }
+
+  /**
+   * @throws DateTimeParseException
+   */
+  public long parseMillis(CharSequence text) {
+    return parseMillis(text, 0, text.length());
+  }
+
+  /**
+   * @throws DateTimeParseException
+   */
+  public long parseMillis(CharSequence text, int from, int to) {
+    Entry e = parseCache;
+    if (e != null) {
+      long millis = e.match(text, from, to);
+      if (millis != Long.MIN_VALUE) {
+        return millis;
+      }
+    }
+    long millis = format.parseMillis(text, from, to);
+    if (cacheable) {
+      e = createEntry(millis);
+      if (e != null && e.match(text, from, to) == millis) {
+        parseCache = e;
+      }
+    }
+    return millis;
+  }
+
+  @Override
+  public String toString() {
+    return "CachedDateTimeFormat[" + format.getPattern() + "]";
+  }
+
+  private Entry formatEntry(long epochMillis) {
+    Entry e = formatCache;
+    if (e != null && epochMillis >= e.start && epochMillis < e.end) {
+      return e;
+    }
+    if (!cacheable) {
+      return null;
+    }
+    e = createEntry(epochMillis);
+    formatCache = e;
+    return e;
+  }
+
+  private Entry createEntry(long epochMillis) {
+    long minute = Math.floorDiv(epochMillis, 60_000) * 60_000;
+    Entry e = tryEntry(minute, 60_000);
+    if (e != null) {
+      return e;
+    }
+    e = tryEntry(Math.floorDiv(epochMillis, 1000) * 1000, 1000);
+    if (e == null) {
+      // no offset changes within a second, so the pattern must be not cacheable
+      cacheable = false;
+    }
+    return e;
+  }
+
+  /**
+   * Find the fields by the differences between the first and the last instant of the range, then check a middle one.
+   */
+  private Entry tryEntry(long start, long length) {
+    String first = format.format(start);
+    String last = format.format(start + length - 1);
+    if (first.length() != last.length()) {
+      return null;
+    }
+    int secondIndex = -1;
+    int millisIndex = -1;
+    for (int i = 0; i < first.length(); i++) {
+      if (first.charAt(i) == last.charAt(i)) {
+        continue;
+      }
+      if (millisIndex == -1 && first.startsWith("000", i) && last.startsWith("999", i)) {
+        millisIndex = i;
+        i += 2;
+      } else if (secondIndex == -1 && length == 60_000 && first.startsWith("00", i) && last.startsWith("59", i)) {
+        secondIndex = i;
+        i += 1;
+      } else {
+        return null;
+      }
+    }
+    if (length == 60_000 && secondIndex == -1) {
+      return null;
+    }
+    Entry e = new Entry(start, start + length, first.toCharArray(), secondIndex, millisIndex);
+    long middle = start + length / 2 + 123;
+    char[] cs = e.text.clone();
+    e.fill(middle, cs, 0);
+    return format.format(middle).equals(new String(cs)) ? e : null;
+  }
+
+  private static final class Entry {
+    final long start;
+    final long end;
+    final char[] text;
+    final int secondIndex;
+    final int millisIndex;
+
+    Entry(long start, long end, char[] text, int secondIndex, int millisIndex) {
+      this.start = start;
+      this.end = end;
+      this.text = text;
+      this.secondIndex = secondIndex;
+      this.millisIndex = millisIndex;
+    }
+
+    void fill(long epochMillis, char[] dst, int offset) {
+      int delta = (int) (epochMillis - start);
+      if (secondIndex != -1) {
+        int s = delta / 1000;
+        dst[offset + secondIndex] = (char) ('0' + s / 10);
+        dst[offset + secondIndex + 1] = (char) ('0' + s % 10);
+      }
+      if (millisIndex != -1) {
+        int ms = delta % 1000;
+        dst[offset + millisIndex] = (char) ('0' + ms / 100);
+        dst[offset + millisIndex + 1] = (char) ('0' + ms / 10 % 10);
+        dst[offset + millisIndex + 2] = (char) ('0' + ms % 10);
+      }
+    }
+
+    void fill(long epochMillis, StringBuilder sb, int offset) {
+      int delta = (int) (epochMillis - start);
+      if (secondIndex != -1) {
+        int s = delta / 1000;
+        sb.setCharAt(offset + secondIndex, (char) ('0' + s / 10));
+        sb.setCharAt(offset + secondIndex + 1, (char) ('0' + s % 10));
+      }
+      if (millisIndex != -1) {
+        int ms = delta % 1000;
+        sb.setCharAt(offset + millisIndex, (char) ('0' + ms / 100));
+        sb.setCharAt(offset + millisIndex + 1, (char) ('0' + ms / 10 % 10));
+        sb.setCharAt(offset + millisIndex + 2, (char) ('0' + ms % 10));
+      }
+    }
+
+    /**
+     * @return the millis if the text is in this entry, or {@link Long#MIN_VALUE}
+     */
+    long match(CharSequence text, int from, int to) {
+      if (to - from != this.text.length) {
+        return Long.MIN_VALUE;
+      }
+      long delta = 0;
+      for (int i = 0; i < this.text.length; i++) {
+        char c = text.charAt(from + i);
+        if (i == secondIndex) {
+          int s = digit(c) * 10 + digit(text.charAt(from + i + 1));
+          if (s < 0 || s > 59) {
+            return Long.MIN_VALUE;
+          }
+          delta += s * 1000;
+          i++;
+        } else if (i == millisIndex) {
+          int ms = digit(c) * 100 + digit(text.charAt(from + i + 1)) * 10 + digit(text.charAt(from + i + 2));
+          if (ms < 0) {
+            return Long.MIN_VALUE;
+          }
+          delta += ms;
+          i += 2;
+        } else if (c != this.text[i]) {
+          return Long.MIN_VALUE;
+        }
+      }
+      return start + delta;
+    }
+
+    /**
+     * @return the digit, or a big negative number
+     */
+    private static int digit(char c) {
+      return c >= '0' && c <= '9' ? c - '0' : -10000;
+    }
+  }
+}
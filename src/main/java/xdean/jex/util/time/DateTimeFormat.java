@@ -0,0 +1,236 @@
+package xdean.jex.util.time;
+
+import java.nio.CharBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable and thread safe date time format backed by {@link DateTimeFormatter}. Instances are cached by pattern, zone
+ * and locale, so share them freely.
+ *
+ * <p>
+ * {@link #iso()} formats and parses {@value #ISO_PATTERN} by hand, which is several times faster than
+ * {@link java.text.SimpleDateFormat}. It parses 1 to 9 fraction digits or none, offset {@code Z}, {@code +HH},
+ * {@code +HHmm} or {@code +HH:mm} or none (then use the format's zone).
+ * </p>
+ *
+ * <pre>
+ * <code>DateTimeFormat f = DateTimeFormat.iso();
+ * f.formatTo(System.currentTimeMillis(), sb);
+ * long t = f.parseMillis(line, 0, 29);</code>
+ * </pre>
+ *
+ * @author XDean
+ */
+public final class DateTimeFormat {
+
+  public static final String ISO_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+  private static final int MAX_CACHE = 1024;
+  private static final Map<List<Object>, DateTimeFormat> CACHE = new ConcurrentHashMap<>();
+  private static final DateTimeFormat ISO_UTC = of(ISO_PATTERN, ZoneOffset.UTC, Locale.ROOT);
+  private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[Iso8601.MAX_LENGTH]);
+
+  /**
+   * ISO-8601 in UTC.
+   */
+  public static DateTimeFormat iso() {
+    return ISO_UTC;
+  }
+
+  /**
+   * ISO-8601 in the zone.
+   */
+  public static DateTimeFormat iso(ZoneId zone) {
+    return of(ISO_PATTERN, zone, Locale.ROOT);
+  }
+
+  /**
+   * In default zone and locale.
+   */
+  public static DateTimeFormat of(String pattern) {
+    return of(pattern, ZoneId.systemDefault());
+  }
+
+  /**
+   * In default locale.
+   */
+  public static DateTimeFormat of(String pattern, ZoneId zone) {
+    return of(pattern, zone, Locale.getDefault(Locale.Category.FORMAT));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the pattern is invalid
+   */
+  public static DateTimeFormat of(String pattern, ZoneId zone, Locale locale) {
+    List<Object> key = Arrays.asList(pattern, zone, locale);
+    DateTimeFormat format = CACHE.get(key);
+    if (format == null) {
+      format = new DateTimeFormat(pattern, zone, locale);
+      if (CACHE.size() < MAX_CACHE) {
+        DateTimeFormat old = CACHE.putIfAbsent(key, format);
+        format = old == null ? format : old;
+      }
+    }
+    return format;
+  }
+
+  private final String pattern;
+  private final ZoneId zone;
+  private final Locale locale;
+  private final DateTimeFormatter formatter;
+  private final boolean iso;
+  /**
+   * Offset of the zone if it's fixed, or null.
+   */
+  private final ZoneOffset fixedOffset;
+
+  private DateTimeFormat(String pattern, ZoneId zone, Locale locale) {
+    this.pattern = pattern;
+    this.zone = zone;
+    this.locale = locale;
+    this.formatter = DateTimeFormatter.ofPattern(pattern, locale).withZone(zone);
+    this.iso = ISO_PATTERN.equals(pattern);
+    this.fixedOffset = zone.getRules().isFixedOffset() ? zone.getRules().getOffset(Instant.EPOCH) : null;
+  }
+
+  public String getPattern() {
+    return pattern;
+  }
+
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  public Locale getLocale() {
+    return locale;
+  }
+
+  public DateTimeFormatter getFormatter() {
+    return formatter;
+  }
+
+  public String format(long epochMillis) {
+    if (isFast(epochMillis)) {
+      char[] cs = BUFFER.get();
+      return new String(cs, 0, Iso8601.format(epochMillis, offsetSeconds(epochMillis), cs, 0));
+    }
+    return formatter.format(Instant.ofEpochMilli(epochMillis));
+  }
+
+  public String format(Date date) {
+    return format(date.getTime());
+  }
+
+  public String format(TemporalAccessor temporal) {
+    return formatter.format(temporal);
+  }
+
+  public StringBuilder formatTo(long epochMillis, StringBuilder sb) {
+    if (isFast(epochMillis)) {
+      char[] cs = BUFFER.get();
+      return sb.append(cs, 0, Iso8601.format(epochMillis, offsetSeconds(epochMillis), cs, 0));
+    }
+    formatter.formatTo(Instant.ofEpochMilli(epochMillis), sb);
+    return sb;
+  }
+
+  /**
+   * Format into the array.
+   *
+   * @return count of chars written
+   * @throws IndexOutOfBoundsException if the array is too small
+   */
+  public int formatTo(long epochMillis, char[] dst, int offset) {
+    if (isFast(epochMillis) && dst.length - offset >= Iso8601.MAX_LENGTH) {
+      return Iso8601.format(epochMillis, offsetSeconds(epochMillis), dst, offset) - offset;
+    }
+    String s = format(epochMillis);
+    if (offset < 0 || dst.length - offset < s.length()) {
+      throw new IndexOutOfBoundsException("Need " + s.length() + " chars from " + offset + ", but length is "
+          + dst.length);
+    }
+    s.getChars(0, s.length(), dst, offset);
+    return s.length();
+  }
+
+  /**
+   * @throws DateTimeParseException
+   */
+  public long parseMillis(CharSequence text) {
+    return parseMillis(text, 0, text.length());
+  }
+
+  /**
+   * Parse the text without copy.
+   *
+   * @throws DateTimeParseException
+   */
+  public long parseMillis(char[] text, int offset, int length) {
+    return parseMillis(CharBuffer.wrap(text), offset, offset + length);
+  }
+
+  /**
+   * Parse the region [from, to) of the text.
+   *
+   * @throws DateTimeParseException
+   */
+  public long parseMillis(CharSequence text, int from, int to) {
+    if (iso) {
+      return Iso8601.parse(text, from, to, zone);
+    }
+    TemporalAccessor t = formatter.parse(from == 0 && to == text.length() ? text : text.subSequence(from, to));
+    if (t.isSupported(ChronoField.INSTANT_SECONDS)) {
+      return t.getLong(ChronoField.INSTANT_SECONDS) * 1000 +
+          (t.isSupported(ChronoField.MILLI_OF_SECOND) ? t.get(ChronoField.MILLI_OF_SECOND) : 0);
+    }
+    LocalDate date = t.query(TemporalQueries.localDate());
+    if (date == null) {
+      throw new DateTimeParseException("Text has no date: " + text.subSequence(from, to), text, from);
+    }
+    LocalTime time = t.query(TemporalQueries.localTime());
+    return date.atTime(time == null ? LocalTime.MIDNIGHT : time).atZone(zone).toInstant().toEpochMilli();
+  }
+
+  /**
+   * @throws DateTimeParseException
+   */
+  public Instant parseInstant(CharSequence text) {
+    return Instant.ofEpochMilli(parseMillis(text));
+  }
+
+  /**
+   * @throws DateTimeParseException
+   */
+  public Date parseDate(CharSequence text) {
+    return new Date(parseMillis(text));
+  }
+
+  @Override
+  public String toString() {
+    return "DateTimeFormat[" + pattern + ", " + zone + ", " + locale + "]";
+  }
+
+  private boolean isFast(long epochMillis) {
+    return iso && epochMillis >= Iso8601.MIN_MILLIS && epochMillis <= Iso8601.MAX_MILLIS;
+  }
+
+  private int offsetSeconds(long epochMillis) {
+    return fixedOffset != null ? fixedOffset.getTotalSeconds()
+        : zone.getRules().getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds();
+  }
+}
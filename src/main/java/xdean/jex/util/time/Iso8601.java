@@ -0,0 +1,224 @@
+package xdean.jex.util.time;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Hand written ISO-8601 parser and formatter of {@code yyyy-MM-dd'T'HH:mm:ss.SSSXXX}, without allocation.
+ *
+ * @author XDean
+ * @see DateTimeFormat#iso()
+ */
+class Iso8601 {
+
+  /**
+   * Length of {@code 2000-01-01T00:00:00.000}.
+   */
+  static final int LOCAL_LENGTH = 23;
+  /**
+   * Max length of {@code 2000-01-01T00:00:00.000+00:00}.
+   */
+  static final int MAX_LENGTH = LOCAL_LENGTH + 6;
+  static final long MIN_MILLIS = toEpochMillis(1, 1, 1, 0, 0, 0, 0, 0) + 18 * 3600_000L;
+  static final long MAX_MILLIS = toEpochMillis(9999, 12, 31, 23, 59, 59, 999, 0) - 18 * 3600_000L;
+
+  private static final long DAY_MILLIS = 86400_000L;
+
+  /**
+   * Write to the array, the array must have {@link #MAX_LENGTH} chars from offset.
+   *
+   * @param offsetSeconds the zone offset
+   * @return the end index
+   */
+  static int format(long epochMillis, int offsetSeconds, char[] dst, int offset) {
+    long local = epochMillis + offsetSeconds * 1000L;
+    long days = Math.floorDiv(local, DAY_MILLIS);
+    int millisOfDay = (int) Math.floorMod(local, DAY_MILLIS);
+    // civil from days, see http://howardhinnant.github.io/date_algorithms.html
+    long z = days + 719468;
+    long era = Math.floorDiv(z, 146097);
+    int doe = (int) (z - era * 146097);
+    int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    int mp = (5 * doy + 2) / 153;
+    int day = doy - (153 * mp + 2) / 5 + 1;
+    int month = mp < 10 ? mp + 3 : mp - 9;
+    int year = (int) (yoe + era * 400) + (month <= 2 ? 1 : 0);
+
+    int i = offset;
+    i = digits(year, 4, dst, i);
+    dst[i++] = '-';
+    i = digits(month, 2, dst, i);
+    dst[i++] = '-';
+    i = digits(day, 2, dst, i);
+    dst[i++] = 'T';
+    i = digits(millisOfDay / 3600_000, 2, dst, i);
+    dst[i++] = ':';
+    i = digits(millisOfDay / 60_000 % 60, 2, dst, i);
+    dst[i++] = ':';
+    i = digits(millisOfDay / 1000 % 60, 2, dst, i);
+    dst[i++] = '.';
+    i = digits(millisOfDay % 1000, 3, dst, i);
+    if (offsetSeconds == 0) {
+      dst[i++] = 'Z';
+    } else {
+      int abs = Math.abs(offsetSeconds);
+      dst[i++] = offsetSeconds < 0 ? '-' : '+';
+      i = digits(abs / 3600, 2, dst, i);
+      dst[i++] = ':';
+      i = digits(abs / 60 % 60, 2, dst, i);
+    }
+    return i;
+  }
+
+  /**
+   * Parse {@code yyyy-MM-dd'T'HH:mm:ss[.S{1,9}][Z|+HH|+HHmm|+HH:mm]}. 'T' can also be a space. If there is no offset
+   * in the text, use the zone.
+   *
+   * @return epoch millis
+   * @throws DateTimeParseException if the text is not in the format or the value is out of range
+   */
+  static long parse(CharSequence text, int from, int to, ZoneId zone) {
+    if (to - from < 19) {
+      throw error(text, from, to, from);
+    }
+    int i = from;
+    int year = digits(text, i, 4, from, to);
+    expect(text, i += 4, '-', from, to);
+    int month = digits(text, ++i, 2, from, to);
+    expect(text, i += 2, '-', from, to);
+    int day = digits(text, ++i, 2, from, to);
+    i += 2;
+    char t = text.charAt(i);
+    if (t != 'T' && t != 't' && t != ' ') {
+      throw error(text, from, to, i);
+    }
+    int hour = digits(text, ++i, 2, from, to);
+    expect(text, i += 2, ':', from, to);
+    int minute = digits(text, ++i, 2, from, to);
+    expect(text, i += 2, ':', from, to);
+    int second = digits(text, ++i, 2, from, to);
+    i += 2;
+    int millis = 0;
+    if (i < to && text.charAt(i) == '.') {
+      int start = ++i;
+      while (i < to && isDigit(text.charAt(i))) {
+        if (i - start < 3) {
+          millis = millis * 10 + text.charAt(i) - '0';
+        }
+        i++;
+      }
+      int n = i - start;
+      if (n == 0 || n > 9) {
+        throw error(text, from, to, start);
+      }
+      for (; n < 3; n++) {
+        millis *= 10;
+      }
+    }
+    if (year == 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) ||
+        hour > 23 || minute > 59 || second > 59) {
+      throw error(text, from, to, from);
+    }
+    int offsetSeconds;
+    if (i == to) {
+      if (zone instanceof ZoneOffset) {
+        offsetSeconds = ((ZoneOffset) zone).getTotalSeconds();
+      } else {
+        offsetSeconds = LocalDateTime.of(year, month, day, hour, minute, second)
+            .atZone(zone)
+            .getOffset()
+            .getTotalSeconds();
+      }
+    } else {
+      char c = text.charAt(i);
+      if ((c == 'Z' || c == 'z') && i + 1 == to) {
+        offsetSeconds = 0;
+      } else if (c == '+' || c == '-') {
+        int oh = digits(text, ++i, 2, from, to);
+        int om = 0;
+        i += 2;
+        if (i < to) {
+          if (text.charAt(i) == ':') {
+            i++;
+          }
+          om = digits(text, i, 2, from, to);
+          i += 2;
+        }
+        if (i != to || oh > 18 || om > 59) {
+          throw error(text, from, to, i);
+        }
+        offsetSeconds = (oh * 3600 + om * 60) * (c == '-' ? -1 : 1);
+      } else {
+        throw error(text, from, to, i);
+      }
+    }
+    return toEpochMillis(year, month, day, hour, minute, second, millis, offsetSeconds);
+  }
+
+  static long toEpochMillis(int year, int month, int day, int hour, int minute, int second, int millis,
+      int offsetSeconds) {
+    // days from civil
+    int y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(y, 400);
+    int yoe = (int) (y - era * 400);
+    int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    long days = era * 146097 + doe - 719468;
+    return days * DAY_MILLIS + hour * 3600_000L + minute * 60_000L + (second - offsetSeconds) * 1000L + millis;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+    case 2:
+      return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+    case 4:
+    case 6:
+    case 9:
+    case 11:
+      return 30;
+    default:
+      return 31;
+    }
+  }
+
+  private static int digits(int value, int width, char[] dst, int offset) {
+    for (int i = offset + width - 1; i >= offset; i--) {
+      dst[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    return offset + width;
+  }
+
+  private static int digits(CharSequence text, int index, int width, int from, int to) {
+    if (index + width > to) {
+      throw error(text, from, to, to);
+    }
+    int value = 0;
+    for (int i = index; i < index + width; i++) {
+      char c = text.charAt(i);
+      if (!isDigit(c)) {
+        throw error(text, from, to, i);
+      }
+      value = value * 10 + c - '0';
+    }
+    return value;
+  }
+
+  private static void expect(CharSequence text, int index, char c, int from, int to) {
+    if (index >= to || text.charAt(index) != c) {
+      throw error(text, from, to, index);
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static DateTimeParseException error(CharSequence text, int from, int to, int index) {
+    String s = text.subSequence(from, to).toString();
+    return new DateTimeParseException("Text '" + s + "' is not ISO-8601 date time", s, index - from);
+  }
+}
@@ -0,0 +1,75 @@
+package xdean.jex.util.time;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of nanosecond values. Each power of two range is split into {@value #SUB_BUCKETS} linear
+ * buckets, so the relative error is about 3% for any value.<br>
+ * Only one thread should record into it, recording is lock-free and allocation-free. Other threads can read it any
+ * time.
+ *
+ * @author XDean
+ * @see LatencyTimer
+ */
+class LatencyHistogram {
+
+  static final int SUB_BITS = 5;
+  static final int SUB_BUCKETS = 1 << SUB_BITS;
+  static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) Math.max(0, value);
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Smallest value in the bucket.
+   */
+  static long lowerBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+    int sub = index % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+  }
+
+  /**
+   * Largest value in the bucket.
+   */
+  static long upperBound(int index) {
+    return index + 1 < BUCKETS ? lowerBound(index + 1) - 1 : Long.MAX_VALUE;
+  }
+
+  final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  /**
+   * count, sum, max
+   */
+  final AtomicLongArray stats = new AtomicLongArray(3);
+
+  /**
+   * Single writer, ordered stores make the values visible to readers without CAS.
+   */
+  void record(long nanos) {
+    int index = indexOf(nanos);
+    counts.lazySet(index, counts.get(index) + 1);
+    stats.lazySet(1, stats.get(1) + nanos);
+    if (nanos > stats.get(2)) {
+      stats.lazySet(2, nanos);
+    }
+    stats.lazySet(0, stats.get(0) + 1);
+  }
+
+  void addTo(long[] targetCounts, long[] targetStats) {
+    for (int i = 0; i < BUCKETS; i++) {
+      targetCounts[i] += counts.get(i);
+    }
+    targetStats[0] += stats.get(0);
+    targetStats[1] += stats.get(1);
+    targetStats[2] = Math.max(targetStats[2], stats.get(2));
+  }
+}
@@ -0,0 +1,89 @@
+package xdean.jex.util.time;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable merged state of a {@link LatencyTimer}. All values are in nanoseconds.
+ *
+ * @author XDean
+ */
+public class LatencySnapshot {
+
+  private final String name;
+  private final long[] counts;
+  private final long count;
+  private final long total;
+  private final long max;
+
+  LatencySnapshot(String name, long[] counts, long[] stats) {
+    this.name = name;
+    this.counts = counts;
+    this.count = stats[0];
+    this.total = stats[1];
+    this.max = stats[2];
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  public long getMean() {
+    return count == 0 ? 0 : total / count;
+  }
+
+  /**
+   * @param percentile in [0, 100]
+   * @return the value that the given percent of records are not greater than, with about 3% error.
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be in [0, 100]: " + percentile);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(max, LatencyHistogram.upperBound(i));
+      }
+    }
+    return max;
+  }
+
+  public long getP50() {
+    return getPercentile(50);
+  }
+
+  public long getP99() {
+    return getPercentile(99);
+  }
+
+  public long getP999() {
+    return getPercentile(99.9);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, p999=%.3fms, max=%.3fms]",
+        name, count, millis(getMean()), millis(getP50()), millis(getP99()), millis(getP999()), millis(max));
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
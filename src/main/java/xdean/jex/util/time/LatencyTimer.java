@@ -0,0 +1,155 @@
+package xdean.jex.util.time;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Named latency timer. Every thread records into its own {@link LatencyHistogram} without locking or allocation, the
+ * histograms are merged when {@link #snapshot()}. Histograms of dead threads are folded into one when a snapshot is
+ * taken, or when the recorders double since the last fold, so short-lived threads don't leak.
+ *
+ * <pre>
+ * <code>LatencyTimer timer = LatencyTimer.of("db.query");
+ * Result r = timer.time(() -> query());
+ * timer.snapshot().getP99();</code>
+ * </pre>
+ *
+ * @author XDean
+ */
+public class LatencyTimer {
+
+  private static final Map<String, LatencyTimer> TIMERS = new ConcurrentHashMap<>();
+  private static final int MIN_FOLD_SIZE = 16;
+
+  /**
+   * Get the named timer, create it if absent.
+   */
+  public static LatencyTimer of(String name) {
+    LatencyTimer timer = TIMERS.get(name);
+    return timer != null ? timer : TIMERS.computeIfAbsent(name, LatencyTimer::new);
+  }
+
+  public static Collection<LatencyTimer> all() {
+    return Collections.unmodifiableCollection(TIMERS.values());
+  }
+
+  private final String name;
+  private final ThreadLocal<LatencyHistogram> local = ThreadLocal.withInitial(this::register);
+  private final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger recorderCount = new AtomicInteger();
+  private volatile int foldSize = MIN_FOLD_SIZE;
+  /**
+   * Histograms of dead threads. Guarded by itself.
+   */
+  private final long[] retiredCounts = new long[LatencyHistogram.BUCKETS];
+  private final long[] retiredStats = new long[3];
+
+  private LatencyTimer(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void record(long nanos) {
+    local.get().record(nanos);
+  }
+
+  public void time(Runnable r) {
+    long start = System.nanoTime();
+    try {
+      r.run();
+    } finally {
+      record(System.nanoTime() - start);
+    }
+  }
+
+  public <T> T time(Supplier<T> s) {
+    long start = System.nanoTime();
+    try {
+      return s.get();
+    } finally {
+      record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Merge all threads' records.
+   */
+  public LatencySnapshot snapshot() {
+    long[] counts = new long[LatencyHistogram.BUCKETS];
+    long[] stats = new long[3];
+    synchronized (retiredCounts) {
+      fold(counts, stats);
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += retiredCounts[i];
+      }
+      stats[0] += retiredStats[0];
+      stats[1] += retiredStats[1];
+      stats[2] = Math.max(stats[2], retiredStats[2]);
+    }
+    return new LatencySnapshot(name, counts, stats);
+  }
+
+  @Override
+  public String toString() {
+    return snapshot().toString();
+  }
+
+  int getRecorderCount() {
+    return recorderCount.get();
+  }
+
+  private LatencyHistogram register() {
+    Recorder r = new Recorder(Thread.currentThread());
+    recorders.add(r);
+    if (recorderCount.incrementAndGet() >= foldSize) {
+      synchronized (retiredCounts) {
+        fold(null, null);
+      }
+    }
+    return r.histogram;
+  }
+
+  /**
+   * Fold histograms of dead threads into the retired one, and add the alive ones into counts and stats if not null.
+   * Must hold the lock of {@link #retiredCounts}.
+   */
+  private void fold(long[] counts, long[] stats) {
+    int alive = 0;
+    Iterator<Recorder> it = recorders.iterator();
+    while (it.hasNext()) {
+      Recorder r = it.next();
+      Thread t = r.thread.get();
+      if (t == null || !t.isAlive()) {
+        r.histogram.addTo(retiredCounts, retiredStats);
+        it.remove();
+        recorderCount.decrementAndGet();
+      } else {
+        alive++;
+        if (counts != null) {
+          r.histogram.addTo(counts, stats);
+        }
+      }
+    }
+    foldSize = Math.max(MIN_FOLD_SIZE, alive * 2);
+  }
+
+  private static class Recorder {
+    final WeakReference<Thread> thread;
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    Recorder(Thread thread) {
+      this.thread = new WeakReference<>(thread);
+    }
+  }
+}
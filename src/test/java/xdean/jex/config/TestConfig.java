@@ -0,0 +1,274 @@
+package xdean.jex.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import xdean.jex.util.metrics.Metrics;
+
+public class TestConfig {
+
+  private Path dir;
+  private Path file;
+  private final List<String> events = new CopyOnWriteArrayList<>();
+  private final ConfigListener listener = (k, o, n) -> events.add(k + ":" + o.orElse("") + "->" + n.orElse(""));
+
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("config");
+    file = dir.resolve("config.properties");
+    Config.setSaveDelay(500, TimeUnit.MILLISECONDS);
+    Config.clear();
+    Config.locate(file, dir.resolve("default.properties"));
+    Config.addListener(listener);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Config.removeListener(listener);
+    Config.setHotReload(false);
+    Config.setSaveDelay(500, TimeUnit.MILLISECONDS);
+    Config.flush();
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(dir);
+  }
+
+  @Test
+  public void testSaveCoalesced() throws Exception {
+    Config.setSaveDelay(500, TimeUnit.MILLISECONDS);
+    long saved = Metrics.counter("config.save").get();
+    Config.setProperty("a", "1");
+    Config.setProperty("b", "2");
+    Config.setProperty("a", "3");
+    assertFalse(readFile().containsKey("a"));
+    waitFor(() -> Metrics.counter("config.save").get() > saved);
+    Thread.sleep(600);
+    assertEquals(saved + 1, Metrics.counter("config.save").get());
+    Properties properties = readFile();
+    assertEquals("3", properties.getProperty("a"));
+    assertEquals("2", properties.getProperty("b"));
+  }
+
+  @Test
+  public void testLocateMerge() throws Exception {
+    Config.clear();
+    Config.setProperty("a", "memory");
+    Config.setProperty("early", "1");
+    Path other = dir.resolve("other.properties");
+    Files.write(other, Arrays.asList("a=file", "b=2"));
+    try {
+      Config.locate(other, dir.resolve("default.properties"));
+      assertEquals("file", Config.getProperty("a").get());
+      assertEquals("2", Config.getProperty("b").get());
+      assertEquals("1", Config.getProperty("early").get());
+      waitFor(() -> "1".equals(read(other).getProperty("early")));
+      assertEquals("file", read(other).getProperty("a"));
+    } finally {
+      Config.flush();
+      Files.delete(other);
+    }
+  }
+
+  @Test
+  public void testLocateListenerSaved() throws Exception {
+    Config.clear();
+    Path other = dir.resolve("other.properties");
+    Files.write(other, Arrays.asList("x=1"));
+    ConfigListener follower = (k, o, n) -> {
+      if (k.equals("x")) {
+        Config.setProperty("y", n.get());
+      }
+    };
+    Config.addListener(follower);
+    // saved synchronously in the fire, so the file must be assigned before
+    Config.setSaveDelay(0, TimeUnit.MILLISECONDS);
+    try {
+      Config.locate(other, dir.resolve("default.properties"));
+      assertEquals("1", Config.getProperty("y").get());
+      assertEquals("1", read(other).getProperty("y"));
+    } finally {
+      Config.removeListener(follower);
+      Config.flush();
+      Files.delete(other);
+    }
+  }
+
+  @Test
+  public void testSaveSync() throws Exception {
+    Config.setSaveDelay(0, TimeUnit.MILLISECONDS);
+    Config.setProperty("a", "1");
+    assertEquals("1", readFile().getProperty("a"));
+  }
+
+  @Test
+  public void testUpdateDuringSave() throws Exception {
+    Config.setSaveDelay(1, TimeUnit.MILLISECONDS);
+    int threads = 4;
+    CountDownLatch latch = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      String key = "k" + t;
+      new Thread(() -> {
+        for (int i = 0; i <= 200; i++) {
+          Config.setProperty(key, Integer.toString(i));
+        }
+        latch.countDown();
+      }).start();
+    }
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    // no flush, the last updates must be saved by the write behind
+    waitFor(() -> {
+      Properties properties = readFile();
+      for (int t = 0; t < threads; t++) {
+        if (!"200".equals(properties.getProperty("k" + t))) {
+          return false;
+        }
+      }
+      return true;
+    });
+  }
+
+  @Test
+  public void testSaveFailure() throws Exception {
+    Config.setSaveDelay(0, TimeUnit.MILLISECONDS);
+    Files.delete(file);
+    Files.delete(dir);
+    Config.setProperty("a", "1");
+    assertTrue(Files.notExists(file));
+    Files.createDirectory(dir);
+    waitFor(() -> Files.exists(file) && "1".equals(readFile().getProperty("a")));
+  }
+
+  @Test
+  public void testHotReload() throws Exception {
+    Config.setHotReload(true);
+    Path temp = dir.resolve("temp");
+    Files.write(temp, "a=1\n".getBytes());
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    waitFor(() -> "1".equals(Config.getProperty("a", null)));
+    assertEquals("a:->1", events.get(0));
+  }
+
+  @Test
+  public void testOwnSaveNotReloaded() throws Exception {
+    Config.setSaveDelay(0, TimeUnit.MILLISECONDS);
+    Config.setHotReload(true);
+    Config.setProperty("a", "1");
+    Config.setProperty("a", "2");
+    Thread.sleep(500);
+    assertEquals("[a:->1, a:1->2]", events.toString());
+    assertEquals("2", Config.getProperty("a", null));
+  }
+
+  @Test
+  public void testListenerNotLocked() throws Exception {
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+    ConfigListener blocking = (k, o, n) -> {
+      if (k.equals("a")) {
+        // update from another thread must not be blocked
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() -> Config.setProperty("b", "1"));
+        try {
+          other.get(2, TimeUnit.SECONDS);
+          result.complete(true);
+        } catch (Exception e) {
+          result.complete(false);
+        }
+      }
+    };
+    Config.addListener(blocking);
+    try {
+      Config.setProperty("a", "1");
+      assertTrue(result.get(5, TimeUnit.SECONDS));
+    } finally {
+      Config.removeListener(blocking);
+    }
+    assertEquals("1", Config.getProperty("b", null));
+  }
+
+  @Test
+  public void testTypedGetters() throws Exception {
+    Config.setProperties(ImmutableMap.<String, String> builder()
+        .put("int", "42")
+        .put("bad", "x")
+        .put("long", "5L")
+        .put("bool", "TRUE")
+        .put("duration", "1500ms")
+        .put("iso", "PT2S")
+        .put("unit", " seconds ")
+        .put("list", "1, 2,,3")
+        .build());
+    assertEquals(42, Config.getInt("int", 0));
+    assertEquals(-1, Config.getInt("bad", -1));
+    assertEquals(-1, Config.getInt("absent", -1));
+    assertEquals(5L, Config.getLong("long", 0));
+    assertTrue(Config.getBoolean("bool", false));
+    assertEquals(Duration.ofMillis(1500), Config.getDuration("duration", null));
+    assertEquals(Duration.ofSeconds(2), Config.getDuration("iso", null));
+    assertEquals(Duration.ZERO, Config.getDuration("bad", Duration.ZERO));
+    assertEquals(TimeUnit.SECONDS, Config.getEnum("unit", TimeUnit.class, null));
+    assertEquals(TimeUnit.DAYS, Config.getEnum("bad", TimeUnit.class, TimeUnit.DAYS));
+    assertEquals(Arrays.asList("1", "2", "3"), Config.getList("list"));
+    assertEquals(Arrays.asList("1", "2", "3"), Config.getList("list", String.class));
+    assertEquals(Arrays.asList(1, 2, 3), Config.getList("list", Integer.class));
+    assertEquals(Arrays.asList(), Config.getList("bad", int.class));
+    assertEquals(Arrays.asList(), Config.getList("absent", int.class));
+  }
+
+  @Test
+  public void testParseCache() throws Exception {
+    Config.setProperty("list", "a,b");
+    List<String> list = Config.getList("list");
+    assertSame(list, Config.getList("list"));
+    assertSame(Config.getList("list", int.class), Config.getList("list", int.class));
+    // a new snapshot parses again
+    Config.setProperty("other", "1");
+    assertNotSame(list, Config.getList("list"));
+    assertEquals(list, Config.getList("list"));
+  }
+
+  private Properties readFile() {
+    return read(file);
+  }
+
+  private static Properties read(Path file) {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file)) {
+      properties.load(reader);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return properties;
+  }
+
+  static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timeout");
+      }
+      Thread.sleep(20);
+    }
+  }
+}
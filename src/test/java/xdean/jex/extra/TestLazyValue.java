@@ -0,0 +1,232 @@
+package xdean.jex.extra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class TestLazyValue {
+  @Test
+  public void testConcurrentGet() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    LazyValue<Object> lazy = LazyValue.create(() -> {
+      calls.incrementAndGet();
+      sleep(50);
+      return new Object();
+    });
+    List<Object> results = race(8, lazy::get);
+    assertEquals(1, calls.get());
+    results.forEach(r -> assertSame(results.get(0), r));
+  }
+
+  @Test
+  public void testSupplierReleased() throws Exception {
+    Object captured = new Object();
+    Supplier<Object> supplier = () -> captured;
+    WeakReference<Supplier<Object>> ref = new WeakReference<>(supplier);
+    LazyValue<Object> lazy = LazyValue.create(supplier);
+    supplier = null;
+    assertSame(captured, lazy.get());
+    for (int i = 0; i < 100 && ref.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(ref.get());
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    LazyValue<Integer> lazy = LazyValue.resettable(calls::incrementAndGet);
+    assertEquals(1, lazy.get().intValue());
+    assertEquals(1, lazy.get().intValue());
+    lazy.reset();
+    assertFalse(lazy.isCalculated());
+    assertEquals(2, lazy.get().intValue());
+    try {
+      LazyValue.create(() -> 1).reset();
+      throw new AssertionError();
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  @Test
+  public void testAsyncConcurrentGet() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    AsyncLazyValue<Integer> lazy = AsyncLazyValue.create(() -> {
+      sleep(50);
+      return calls.incrementAndGet();
+    });
+    List<CompletableFuture<Integer>> results = race(8, lazy::get);
+    for (CompletableFuture<Integer> f : results) {
+      assertEquals(1, f.get(5, TimeUnit.SECONDS).intValue());
+    }
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testAsyncResetDuringCalculation() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch block = new CountDownLatch(1);
+    AsyncLazyValue<Integer> lazy = AsyncLazyValue.create(() -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        block.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      running.decrementAndGet();
+      return calls.incrementAndGet();
+    });
+    CompletableFuture<Integer> first = lazy.get();
+    lazy.reset();
+    CompletableFuture<Integer> second = lazy.get();
+    assertNotSame(first, second);
+    assertSame(second, lazy.get());
+    Thread.sleep(100);
+    assertEquals(1, running.get());
+    block.countDown();
+    assertEquals(1, first.get(5, TimeUnit.SECONDS).intValue());
+    assertEquals(2, second.get(5, TimeUnit.SECONDS).intValue());
+    assertEquals(1, maxRunning.get());
+  }
+
+  @Test
+  public void testAsyncRetryFailure() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    AsyncLazyValue<Integer> lazy = AsyncLazyValue.create(() -> {
+      if (calls.incrementAndGet() == 1) {
+        throw new IllegalStateException();
+      }
+      return calls.get();
+    }, Runnable::run);
+    assertTrue(lazy.get().isCompletedExceptionally());
+    assertEquals(2, lazy.get().get().intValue());
+    assertTrue(lazy.isDone());
+  }
+
+  @Test
+  public void testAsyncCallerRunsNotLocked() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch block = new CountDownLatch(1);
+    AsyncLazyValue<Integer> lazy = AsyncLazyValue.create(() -> {
+      started.countDown();
+      try {
+        block.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return 1;
+    }, Runnable::run);
+    Thread caller = new Thread(lazy::get);
+    caller.start();
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    // the calculation runs in the caller thread, a new request still gets its future at once
+    CompletableFuture<Integer> f = CompletableFuture.supplyAsync(() -> {
+      lazy.reset();
+      return lazy.get();
+    }).get(1, TimeUnit.SECONDS);
+    assertFalse(f.isDone());
+    block.countDown();
+    assertEquals(1, f.get(5, TimeUnit.SECONDS).intValue());
+    caller.join();
+  }
+
+  @Test
+  public void testAsyncDefaultPool() throws Exception {
+    Thread caller = Thread.currentThread();
+    assertNotSame(caller, AsyncLazyValue.create(Thread::currentThread).get().get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testRefreshAheadDefaultPool() throws Exception {
+    List<Thread> threads = new ArrayList<>();
+    CountDownLatch refreshed = new CountDownLatch(2);
+    ExpiringLazyValue<Integer> lazy = ExpiringLazyValue.create(() -> {
+      synchronized (threads) {
+        threads.add(Thread.currentThread());
+      }
+      refreshed.countDown();
+      return threads.size();
+    }, Duration.ofMillis(500)).refreshAhead(Duration.ofMillis(450));
+    assertEquals(1, lazy.get().intValue());
+    Thread.sleep(100);
+    assertEquals(1, lazy.get().intValue());
+    assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), threads.get(1));
+  }
+
+  @Test
+  public void testExpiring() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    ExpiringLazyValue<Integer> lazy = ExpiringLazyValue.create(calls::incrementAndGet, Duration.ofMillis(100));
+    assertEquals(1, lazy.get().intValue());
+    assertEquals(1, lazy.get().intValue());
+    Thread.sleep(150);
+    assertEquals(2, lazy.get().intValue());
+    lazy.reset();
+    assertEquals(3, lazy.get().intValue());
+  }
+
+  @Test
+  public void testRefreshAhead() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    ExpiringLazyValue<Integer> lazy = ExpiringLazyValue.create(calls::incrementAndGet, Duration.ofMillis(500))
+        .refreshAhead(Duration.ofMillis(450))
+        .executor(Runnable::run);
+    assertEquals(1, lazy.get().intValue());
+    Thread.sleep(100);
+    // the old value is returned while refreshing
+    assertEquals(1, lazy.get().intValue());
+    assertEquals(2, lazy.get().intValue());
+  }
+
+  private static <T> List<T> race(int threads, Supplier<T> task) throws Exception {
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<T>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(pool.submit(() -> {
+          barrier.await();
+          return task.get();
+        }));
+      }
+      List<T> results = new ArrayList<>();
+      for (Future<T> f : futures) {
+        results.add(f.get(5, TimeUnit.SECONDS));
+      }
+      return results;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package xdean.jex.extra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+
+import xdean.jex.extra.StringURL.Resource;
+
+public class TestStringURL {
+  @Test
+  public void testString() throws Exception {
+    assertEquals("abc\u4e2d\u6587", read(StringURL.createURL("abc\u4e2d\u6587")));
+  }
+
+  @Test
+  public void testMemory() throws Exception {
+    ByteBuffer content = ByteBuffer.allocateDirect(100_000);
+    while (content.hasRemaining()) {
+      content.put((byte) 'a');
+    }
+    content.flip();
+    Resource resource = StringURL.register(content);
+    URL url = new URL(resource.getURLString());
+    assertEquals(100_000, url.openConnection().getContentLengthLong());
+    assertEquals(100_000, url.openConnection().getContentLength());
+    assertEquals(100_000, read(url).length());
+    resource.retain();
+    resource.close();
+    assertEquals("aaa", read(resource.getURL()).substring(0, 3));
+    resource.close();
+    assertTrue(resource.isReleased());
+    try {
+      read(url);
+      throw new AssertionError();
+    } catch (FileNotFoundException e) {
+    }
+  }
+
+  @Test
+  public void testConcurrentClose() throws Exception {
+    int registered = StringURL.getRegisteredCount();
+    for (int round = 0; round < 100; round++) {
+      Resource resource = StringURL.register("abc");
+      int threads = 4;
+      for (int i = 1; i < threads; i++) {
+        resource.retain();
+      }
+      CyclicBarrier barrier = new CyclicBarrier(threads);
+      Thread[] closers = new Thread[threads];
+      for (int i = 0; i < threads; i++) {
+        closers[i] = new Thread(() -> {
+          try {
+            barrier.await();
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+          // extra closes must not make the count negative
+          resource.close();
+          resource.close();
+        });
+        closers[i].start();
+      }
+      for (Thread t : closers) {
+        t.join();
+      }
+      assertTrue(resource.isReleased());
+      try {
+        resource.retain();
+        throw new AssertionError();
+      } catch (IllegalStateException e) {
+      }
+    }
+    assertEquals(registered, StringURL.getRegisteredCount());
+  }
+
+  private static String read(URL url) throws IOException {
+    try (InputStream in = url.openStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[4096];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        out.write(buf, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package xdean.jex.extra.rx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.Observable;
+import xdean.jex.util.task.ExecutorUtil;
+
+public class TestManagedScheduler {
+  @Test
+  public void testRefCount() throws Exception {
+    ManagedScheduler first = RxUtil.sharedScheduler("test-shared", 2);
+    ManagedScheduler second = RxUtil.sharedScheduler("test-shared", 2);
+    assertEquals(1, run(second));
+    first.close();
+    first.close();
+    assertTrue(first.isClosed());
+    try {
+      first.createWorker();
+      throw new AssertionError();
+    } catch (IllegalStateException e) {
+    }
+    // other handles still work
+    assertEquals(1, run(second));
+    try {
+      RxUtil.workStealingScheduler("test-shared", 2);
+      throw new AssertionError();
+    } catch (IllegalArgumentException e) {
+    }
+    second.close();
+    // the pool is released, the name can be used again
+    try (ManagedScheduler other = RxUtil.workStealingScheduler("test-shared", 2)) {
+      assertEquals(1, run(other));
+    }
+  }
+
+  @Test
+  public void testVirtualFallback() throws Exception {
+    assertEquals(ExecutorUtil.isVirtualThreadSupported(), ExecutorUtil.newVirtualThreadExecutor().isPresent());
+    try (ManagedScheduler scheduler = RxUtil.virtualThreadScheduler("test-virtual")) {
+      assertEquals(1, run(scheduler));
+    }
+  }
+
+  private static int run(ManagedScheduler scheduler) {
+    return Observable.just(1)
+        .observeOn(scheduler)
+        .timeout(5, TimeUnit.SECONDS)
+        .toBlocking()
+        .single();
+  }
+}
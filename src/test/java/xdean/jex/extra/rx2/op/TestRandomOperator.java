@@ -0,0 +1,58 @@
+package xdean.jex.extra.rx2.op;
+
+import static org.junit.Assert.assertEquals;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.subscribers.TestSubscriber;
+
+import org.junit.Test;
+
+import xdean.jex.util.metrics.Metrics;
+
+public class TestRandomOperator {
+  @Test
+  public void testShuffle() throws Exception {
+    Flowable.range(0, 1000)
+        .lift(RandomOperator.flowable(100))
+        .sorted()
+        .test()
+        .assertValueCount(1000)
+        .assertValueAt(999, 999);
+    Observable.range(0, 1000)
+        .lift(RandomOperator.observable(100))
+        .sorted()
+        .test()
+        .assertValueCount(1000)
+        .assertValueAt(999, 999);
+  }
+
+  @Test
+  public void testCancelReleaseBuffer() throws Exception {
+    long start = buffered();
+    TestSubscriber<Integer> ts = Flowable.range(0, 1000)
+        .lift(RandomOperator.flowable(100))
+        .test(5);
+    ts.assertValueCount(5);
+    assertEquals(start + 99, buffered());
+    ts.cancel();
+    assertEquals(start, buffered());
+
+    Flowable.range(0, 1000)
+        .lift(RandomOperator.flowable(100))
+        .take(10)
+        .test()
+        .assertValueCount(10);
+    assertEquals(start, buffered());
+
+    Observable.range(0, 1000)
+        .lift(RandomOperator.observable(100))
+        .take(10)
+        .test()
+        .assertValueCount(10);
+    assertEquals(start, buffered());
+  }
+
+  private static long buffered() {
+    return Metrics.values().getOrDefault("rx.random.buffered", 0L);
+  }
+}
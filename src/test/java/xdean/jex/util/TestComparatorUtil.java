@@ -44,4 +44,50 @@ public class TestComparatorUtil {
         .test()
         .assertResult(3, 6, 8, 0, 4, 5, 7, 2, 9, 1);
   }
+
+  enum Level {
+    DEBUG, INFO, WARN, ERROR
+  }
+
+  @Test
+  public void testRankTables() throws Exception {
+    Flowable.fromArray(Level.values())
+        .sorted(startWith(Level.ERROR, Level.WARN))
+        .test()
+        .assertResult(Level.ERROR, Level.WARN, Level.DEBUG, Level.INFO);
+    Flowable.just("a", "b", "c", "d")
+        .sorted(endWith("b", "a", "b"))
+        .test()
+        .assertResult("c", "d", "b", "a");
+    Flowable.range(0, 5)
+        .sorted(startWith(100_000, 3, -100_000, 1))
+        .test()
+        .assertResult(3, 1, 0, 2, 4);
+  }
+
+  @Test
+  public void testChain() throws Exception {
+    Flowable.just("bb", "a", "ccc", "b", "aa")
+        .sorted(ComparatorUtil.<String> chain()
+            .comparingInt(String::length).reversed()
+            .comparing(s -> s)
+            .build())
+        .test()
+        .assertResult("ccc", "aa", "bb", "a", "b");
+  }
+
+  @Test
+  public void testChainReversedAfterBuild() throws Exception {
+    ComparatorChain.Builder<String> builder = ComparatorUtil.<String> chain().comparingInt(String::length);
+    ComparatorChain<String> chain = builder.build();
+    builder.reversed();
+    Flowable.just("bb", "a", "ccc")
+        .sorted(chain)
+        .test()
+        .assertResult("a", "bb", "ccc");
+    Flowable.just("bb", "a", "ccc")
+        .sorted(builder.build())
+        .test()
+        .assertResult("ccc", "bb", "a");
+  }
 }
@@ -2,7 +2,14 @@ package xdean.jex.util.file;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -26,6 +33,99 @@ public class TestFileUtil {
         .forEach(c -> Assert.assertEquals(6, c.intValue()));
   }
 
+  @Test
+  public void testTraversal() {
+    FileUtil.traversal(Paths.get(CP).resolve("count"))
+        .flowable()
+        .test()
+        .assertValueCount(6)
+        .assertValueAt(0, e -> e.isDirectory());
+    FileUtil.traversal(Paths.get(CP).resolve("count"))
+        .parallelism(4)
+        .bufferSize(1)
+        .flowable()
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertValueCount(6);
+    FileUtil.traversal(Paths.get(CP).resolve("count"))
+        .prune(e -> e.getPath().endsWith("dir1"))
+        .filter(e -> e.isRegularFile())
+        .flowable()
+        .test()
+        .assertValueCount(3);
+    FileUtil.traversal(Paths.get(CP).resolve("count"))
+        .parallelism(2)
+        .flowable()
+        .take(2)
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertValueCount(2);
+  }
+
+  @Test
+  public void testParallelTraversalSmallBuffer() {
+    FileUtil.traversal(Paths.get(CP).resolve("file1"))
+        .parallelism(2)
+        .bufferSize(1)
+        .flowable()
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertComplete()
+        .assertValueCount(1);
+    FileUtil.traversal(Paths.get(CP).resolve("count"))
+        .parallelism(2)
+        .bufferSize(1)
+        .prune(e -> true)
+        .flowable()
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertComplete()
+        .assertValueCount(1);
+  }
+
+  @Test
+  public void testParallelTraversalWideTree() throws IOException {
+    Path root = Files.createTempDirectory("wide");
+    try {
+      for (int i = 0; i < 30; i++) {
+        Path dir = Files.createDirectory(root.resolve("dir" + i));
+        Files.createDirectory(dir.resolve("sub"));
+        for (int j = 0; j < 3; j++) {
+          Files.createFile(dir.resolve("file" + j));
+        }
+      }
+      // the directory queue is full most of the time, listing threads list subdirectories themselves
+      FileUtil.traversal(root)
+          .parallelism(2)
+          .bufferSize(2)
+          .flowable()
+          .test()
+          .awaitDone(5, TimeUnit.SECONDS)
+          .assertComplete()
+          .assertValueCount(1 + 30 * 5);
+    } finally {
+      try (Stream<Path> paths = Files.walk(root)) {
+        paths.sorted(Comparator.reverseOrder()).forEach(p -> ExceptionUtil.uncheck(() -> Files.delete(p)));
+      }
+    }
+  }
+
+  @Test
+  public void testParallelTraversalPredicateError() {
+    FileUtil.traversal(Paths.get(CP).resolve("count"))
+        .parallelism(2)
+        .filter(e -> {
+          if (e.getPath().endsWith("dir1")) {
+            throw new IllegalStateException("filter");
+          }
+          return true;
+        })
+        .flowable()
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertError(IllegalStateException.class);
+  }
+
   @Test
   public void testEquals() throws IOException {
     Assert.assertTrue(FileUtil.equals(
@@ -40,10 +140,93 @@ public class TestFileUtil {
         Paths.get(CP).resolve("file2")));
   }
 
+  @Test
+  public void testMismatch() throws IOException {
+    Assert.assertEquals(-1, FileUtil.mismatch(
+        Paths.get(CP).resolve("file1"),
+        Paths.get(CP).resolve("file1_copy")));
+    Assert.assertEquals(4, FileUtil.mismatch(
+        Paths.get(CP).resolve("file1"),
+        Paths.get(CP).resolve("file2")));
+    Assert.assertEquals(4, FileUtil.parallelMismatch(
+        Paths.get(CP).resolve("file1"),
+        Paths.get(CP).resolve("file2")));
+  }
+
+  @Test
+  public void testMismatchWindows() throws IOException {
+    Path f1 = Files.createTempFile("mismatch", ".bin");
+    Path f2 = Files.createTempFile("mismatch", ".bin");
+    try {
+      // 100 bytes window is not a multiple of 8, words straddle the window boundaries
+      byte[] bytes = new byte[10003];
+      new Random(0).nextBytes(bytes);
+      Files.write(f1, bytes);
+      for (boolean parallel : new boolean[] { false, true }) {
+        Files.write(f2, bytes);
+        Assert.assertEquals(-1, FileUtil.mismatch(f1, f2, parallel, 100));
+        for (int index : new int[] { 0, 7, 96, 99, 100, 101, 103, 104, 5000, 9999, 10000, 10002 }) {
+          byte[] changed = bytes.clone();
+          changed[index]++;
+          Files.write(f2, changed);
+          Assert.assertEquals(index, FileUtil.mismatch(f1, f2, parallel, 100));
+        }
+        byte[] changed = bytes.clone();
+        changed[8500]++;
+        changed[199]++;
+        Files.write(f2, changed);
+        Assert.assertEquals(199, FileUtil.mismatch(f1, f2, parallel, 100));
+        Files.write(f2, Arrays.copyOf(bytes, 10001));
+        Assert.assertEquals(10001, FileUtil.mismatch(f1, f2, parallel, 100));
+      }
+    } finally {
+      Files.delete(f1);
+      Files.delete(f2);
+    }
+  }
+
+  @Test
+  public void testDuplicateFinder() {
+    DuplicateFinder.of(Paths.get(CP))
+        .concurrency(2)
+        .find()
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertValueCount(1)
+        .assertValue(l -> l.size() == 2 && l.contains(Paths.get(CP).resolve("file1_copy")));
+    DuplicateFinder.of(Paths.get(CP))
+        .minSize(0)
+        .blockSize(1)
+        .find()
+        .test()
+        .awaitDone(5, TimeUnit.SECONDS)
+        .assertValueCount(2);
+  }
+
   @Test
   public void testMd5() throws IOException {
     Assert.assertEquals(
         "01e8f91c94041493aaddc6dee5aeffc7",
         FileUtil.md5(Paths.get(CP).resolve("md5")));
   }
+
+  @Test
+  public void testDigester() throws Exception {
+    Path cache = Files.createTempFile("digest", ".cache");
+    try {
+      FileDigester digester = FileDigester.create("MD5").cacheFile(cache);
+      digester.digestAll(Arrays.asList(Paths.get(CP).resolve("md5"), Paths.get(CP).resolve("file1")))
+          .test()
+          .awaitDone(5, TimeUnit.SECONDS)
+          .assertValueCount(2);
+      digester.save();
+
+      FileDigester loaded = FileDigester.create("MD5").cacheFile(cache);
+      Assert.assertEquals(2, loaded.cacheSize());
+      Assert.assertEquals("01e8f91c94041493aaddc6dee5aeffc7", loaded.digest(Paths.get(CP).resolve("md5")));
+      Assert.assertEquals(0, FileDigester.create("SHA-1").cacheFile(cache).cacheSize());
+    } finally {
+      Files.delete(cache);
+    }
+  }
 }
@@ -6,12 +6,17 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.Test;
 
+import xdean.jex.util.reflect.AnnotationIndex;
 import xdean.jex.util.reflect.AnnotationUtil;
+import xdean.jex.util.reflect.ReflectUtil;
 
 public class TestAnnotationUtil {
   @Retention(RetentionPolicy.RUNTIME)
@@ -23,6 +28,13 @@ public class TestAnnotationUtil {
   public static class TestClass {
   }
 
+  public static class BatchClass {
+    String field;
+
+    void method() {
+    }
+  }
+
   @Test
   public void test() {
     TestAnnotation annotation = TestClass.class.getAnnotation(TestAnnotation.class);
@@ -38,4 +50,26 @@ public class TestAnnotationUtil {
     assertNotNull(annotation);
     assertEquals(value, annotation.value());
   }
+
+  @Test
+  public void testBatch() throws Exception {
+    Method method = ReflectUtil.getRootMethod(BatchClass.class.getDeclaredMethod("method"));
+    Field field = BatchClass.class.getDeclaredField("field");
+    AnnotationIndex index = AnnotationUtil.batch()
+        .add(BatchClass.class, create("class"))
+        .add(method, create("method"))
+        .add(field, create("field"))
+        .applyAndIndex();
+
+    assertEquals("class", BatchClass.class.getAnnotation(TestAnnotation.class).value());
+    assertEquals("method", method.getAnnotation(TestAnnotation.class).value());
+    assertEquals(3, index.getElements(TestAnnotation.class).size());
+    assertEquals(Collections.singletonList(BatchClass.class), index.getClasses(TestAnnotation.class));
+    assertEquals("field", index.getAnnotation(field, TestAnnotation.class).value());
+    assertEquals("method", index.getMethods(TestAnnotation.class).get(0).getAnnotation(TestAnnotation.class).value());
+  }
+
+  private static TestAnnotation create(String value) {
+    return AnnotationUtil.createAnnotationFromMap(TestAnnotation.class, Collections.singletonMap("value", value));
+  }
 }
@@ -0,0 +1,96 @@
+package xdean.jex.util.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+import xdean.jex.util.lang.FinalizeSupport.Registration;
+
+public class TestFinalizeSupport {
+  @Test
+  public void testFinalize() throws Exception {
+    int threads = 8;
+    CountDownLatch done = new CountDownLatch(threads);
+    // register from several threads to use all stripes
+    for (int i = 0; i < threads; i++) {
+      Thread t = new Thread(() -> FinalizeSupport.finalize(new Object(), done::countDown));
+      t.start();
+      t.join();
+    }
+    waitFor(() -> done.getCount() == 0);
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    AtomicBoolean run = new AtomicBoolean();
+    int pending = FinalizeSupport.getPendingCount();
+    Registration registration = FinalizeSupport.register(new Object(), () -> run.set(true));
+    assertEquals(pending + 1, FinalizeSupport.getPendingCount());
+    assertTrue(registration.cancel());
+    assertFalse(registration.cancel());
+    assertEquals(pending, FinalizeSupport.getPendingCount());
+    System.gc();
+    Thread.sleep(100);
+    assertFalse(run.get());
+  }
+
+  @Test
+  public void testActionError() throws Exception {
+    CountDownLatch done = new CountDownLatch(1);
+    FinalizeSupport.finalize(new Object(), () -> {
+      throw new IllegalStateException("ignored");
+    });
+    FinalizeSupport.finalize(new Object(), done::countDown);
+    waitFor(() -> done.getCount() == 0);
+  }
+
+  @Test
+  public void testExecutorFull() throws Exception {
+    // more blocked actions than executor threads + queue, the rest wait in the overflow
+    int count = 1100;
+    CountDownLatch block = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(count);
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    for (int i = 0; i < count; i++) {
+      FinalizeSupport.finalize(new Object(), () -> {
+        threadNames.add(Thread.currentThread().getName());
+        try {
+          block.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      });
+    }
+    waitFor(() -> FinalizeSupport.getQueuedCount() >= count - 2);
+    // drainers are not blocked
+    CountDownLatch other = new CountDownLatch(1);
+    FinalizeSupport.finalize(new Object(), other::countDown);
+    waitFor(() -> FinalizeSupport.getQueuedCount() >= count - 1);
+    block.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(other.await(10, TimeUnit.SECONDS));
+    assertTrue(threadNames.stream().allMatch(n -> n.startsWith("Finalize Support Executor")));
+    waitFor(() -> FinalizeSupport.getQueuedCount() == 0);
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timeout");
+      }
+      System.gc();
+      Thread.sleep(20);
+    }
+  }
+}
@@ -38,4 +38,15 @@ public class TestPrimitiveTypeUtil {
     assertEquals(Integer.class, toWrapper(int.class));
     assertEquals(int.class, toPrimitive(Integer.class));
   }
+
+  @Test
+  public void testParse() {
+    assertEquals(Integer.valueOf(12), parse(int.class, "12"));
+    assertEquals(Long.valueOf(12), parse(Long.class, "12L"));
+    assertEquals(Boolean.TRUE, parse(boolean.class, "TRUE"));
+    assertEquals(Character.valueOf('a'), parse(char.class, "a"));
+    assertNull(parse(String.class, "a"));
+    assertSame(getParser(int.class), getParser(Integer.class));
+    assertEquals(8, sizeOf(long.class));
+  }
 }
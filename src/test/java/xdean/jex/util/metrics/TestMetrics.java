@@ -0,0 +1,29 @@
+package xdean.jex.util.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestMetrics {
+  @Test
+  public void testExport() throws Exception {
+    Counter counter = Metrics.counter("test.counter");
+    assertSame(counter, Metrics.counter("test.counter"));
+    counter.add(3);
+    counter.decrement();
+    Metrics.gauge("test.gauge", () -> 42);
+    Metrics.timer("test.timer").record(1000);
+
+    assertEquals(2L, Metrics.values().get("test.counter").longValue());
+    String text = MetricsExporter.toText();
+    assertTrue(text, text.contains("test.counter 2\n"));
+    assertTrue(text, text.contains("test.gauge 42\n"));
+    assertTrue(text, text.contains("test.timer.count 1\n"));
+    String json = MetricsExporter.toJson();
+    assertTrue(json, json.contains("\"test.counter\":2"));
+    assertTrue(json, json.contains("\"test.timer\":{\"count\":1,"));
+    Metrics.removeGauge("test.gauge");
+  }
+}
@@ -0,0 +1,65 @@
+package xdean.jex.util.security;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import xdean.jex.util.string.HexUtil;
+
+public class TestBufferPool {
+
+  @Test
+  public void testBounded() {
+    BufferPool pool = new BufferPool(16, 2);
+    ByteBuffer b1 = pool.acquire();
+    ByteBuffer b2 = pool.acquire();
+    ByteBuffer b3 = pool.acquire();
+    Assert.assertTrue(b1.isDirect());
+    Assert.assertTrue(b2.isDirect());
+    Assert.assertFalse(b3.isDirect());
+    Assert.assertEquals(16, b3.capacity());
+    Assert.assertEquals(2, pool.getAllocatedCount());
+
+    b1.put((byte) 1);
+    pool.release(b1);
+    pool.release(b3);
+    ByteBuffer reused = pool.acquire();
+    Assert.assertSame(b1, reused);
+    Assert.assertEquals(0, reused.position());
+    Assert.assertEquals(16, reused.limit());
+    Assert.assertFalse(pool.acquire().isDirect());
+    Assert.assertEquals(2, pool.getAllocatedCount());
+  }
+
+  @Test
+  public void testDigestManyThreads() throws Exception {
+    byte[] bytes = new byte[BufferPool.DEFAULT.getBufferSize() * 2 + 123];
+    new Random(0).nextBytes(bytes);
+    String expect = HexUtil.toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    int threads = Runtime.getRuntime().availableProcessors() * 4 + 1;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < threads * 4; i++) {
+        results.add(executor.submit(() -> SecurityUtil.digest(
+            Channels.newChannel(new ByteArrayInputStream(bytes)), "SHA-256")));
+      }
+      for (Future<String> result : results) {
+        Assert.assertEquals(expect, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertTrue(BufferPool.DEFAULT.getAllocatedCount() <= Runtime.getRuntime().availableProcessors() * 2);
+  }
+}
@@ -0,0 +1,102 @@
+package xdean.jex.util.security;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import xdean.jex.extra.function.RunnableThrow;
+
+public class TestTreeDigest {
+  @Test
+  public void testTreeDigest() throws Exception {
+    Path file = Files.createTempFile("tree", ".bin");
+    try {
+      byte[] bytes = new byte[10000];
+      new Random(0).nextBytes(bytes);
+      Files.write(file, bytes);
+      TreeDigest origin = TreeDigest.of(file, "SHA-256", 1024, ForkJoinPool.commonPool());
+      Assert.assertEquals(10, origin.getChunkCount());
+
+      bytes[3000]++;
+      Files.write(file, bytes);
+      TreeDigest updated = origin.update(3000, 1);
+      Assert.assertEquals(TreeDigest.of(file, "SHA-256", 1024, ForkJoinPool.commonPool()).getRootHex(),
+          updated.getRootHex());
+      Assert.assertArrayEquals(new int[] { 2 }, origin.diff(updated));
+
+      Files.write(file, new byte[5000], StandardOpenOption.APPEND);
+      TreeDigest appended = updated.update(10000, 5000);
+      Assert.assertEquals(TreeDigest.of(file, "SHA-256", 1024, ForkJoinPool.commonPool()).getRootHex(),
+          appended.getRootHex());
+      Assert.assertArrayEquals(new int[] { 9, 10, 11, 12, 13, 14 }, updated.diff(appended));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testUpdateOutOfRange() throws Exception {
+    Path file = Files.createTempFile("tree", ".bin");
+    try {
+      Files.write(file, new byte[1000]);
+      TreeDigest digest = TreeDigest.of(file, "SHA-256", 256, ForkJoinPool.commonPool());
+      assertOutOfRange(() -> digest.update(-1, 1));
+      assertOutOfRange(() -> digest.update(0, -1));
+      assertOutOfRange(() -> digest.update(1001, 0));
+      assertOutOfRange(() -> digest.update(500, 501));
+      assertOutOfRange(() -> digest.update(1, Long.MAX_VALUE));
+      Assert.assertEquals(digest.getRootHex(), digest.update(0, 1000).getRootHex());
+      Assert.assertEquals(digest.getRootHex(), digest.update(1000, 0).getRootHex());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void assertOutOfRange(RunnableThrow<Exception> action) throws Exception {
+    try {
+      action.run();
+      Assert.fail("Out of range update should fail.");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testChunkBiggerThanBuffer() throws Exception {
+    Path file = Files.createTempFile("tree", ".bin");
+    try {
+      int chunkSize = BufferPool.DEFAULT.getBufferSize() * 2 + 100;
+      byte[] bytes = new byte[chunkSize * 2 + 1000];
+      new Random(0).nextBytes(bytes);
+      Files.write(file, bytes);
+      TreeDigest digest = TreeDigest.of(file, "SHA-256", chunkSize, ForkJoinPool.commonPool());
+      Assert.assertEquals(3, digest.getChunkCount());
+
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      byte[][] leaves = new byte[3][];
+      for (int i = 0; i < 3; i++) {
+        md.update((byte) 0);
+        md.update(bytes, i * chunkSize, Math.min(chunkSize, bytes.length - i * chunkSize));
+        leaves[i] = md.digest();
+        Assert.assertArrayEquals(leaves[i], digest.getChunkDigest(i));
+      }
+      md.update((byte) 1);
+      md.update(leaves[0]);
+      md.update(leaves[1]);
+      byte[] left = md.digest();
+      md.update((byte) 1);
+      md.update(left);
+      md.update(leaves[2]);
+      Assert.assertTrue(Arrays.equals(md.digest(), digest.getRoot()));
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
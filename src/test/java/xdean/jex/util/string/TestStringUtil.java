@@ -2,6 +2,20 @@ package xdean.jex.util.string;
 
 import io.reactivex.Flowable;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 import org.junit.Assert;
@@ -22,6 +36,49 @@ public class TestStringUtil {
     Assert.assertEquals(41, firstIndexOf);
   }
 
+  @Test
+  public void multiPattern() {
+    Random random = new Random(0);
+    for (int round = 0; round < 200; round++) {
+      String text = randomString(random, 100, "abcAB");
+      String[] patterns = new String[1 + random.nextInt(8)];
+      for (int i = 0; i < patterns.length; i++) {
+        patterns[i] = randomString(random, 1 + random.nextInt(4), "abcAB");
+      }
+      int first = -1;
+      int last = -1;
+      for (String p : patterns) {
+        int i = text.indexOf(p);
+        first = i == -1 ? first : first == -1 ? i : Math.min(first, i);
+        last = Math.max(last, text.lastIndexOf(p));
+      }
+      MultiPatternMatcher matcher = MultiPatternMatcher.of(patterns);
+      Assert.assertEquals(first, matcher.indexOf(text));
+      Assert.assertEquals(last, matcher.lastIndexOf(text));
+      Assert.assertEquals(first, StringUtil.firstIndexOf(text, patterns));
+      Assert.assertEquals(last, StringUtil.lastIndexOf(text, patterns));
+      int[] count = new int[1];
+      matcher.forEachMatch(text, (p, start, end) -> {
+        Assert.assertTrue(text.regionMatches(start, patterns[p], 0, end - start));
+        count[0]++;
+        return true;
+      });
+      Assert.assertEquals(first != -1, count[0] > 0);
+      Assert.assertEquals(text.toLowerCase().indexOf(patterns[0].toLowerCase(), 3),
+          StringUtil.indexOfIgnoreCase(text, patterns[0], 3));
+      Assert.assertEquals(text.toLowerCase().indexOf(patterns[0].toLowerCase()),
+          MultiPatternMatcher.ofIgnoreCase(patterns[0]).indexOf(text));
+    }
+  }
+
+  private static String randomString(Random random, int length, String chars) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      sb.append(chars.charAt(random.nextInt(chars.length())));
+    }
+    return sb.toString();
+  }
+
   @Test
   public void balancePair() {
     String str = "a{b{c}d}{e}f{g}h}i}";
@@ -34,6 +91,42 @@ public class TestStringUtil {
     Assert.assertEquals(-1, pair[1]);
   }
 
+  @Test(timeout = 5000)
+  public void balancePairDeep() {
+    String str = StringUtil.repeat("(", 200_000) + StringUtil.repeat(")", 200_000);
+    Assert.assertArrayEquals(new int[] { 0, str.length() - 1 }, StringUtil.balancePair(str, "(", ")"));
+  }
+
+  @Test
+  public void balancedScanner() throws Exception {
+    BalancedScanner scanner = BalancedScanner.builder()
+        .pair("{", "}")
+        .pair("${", "}")
+        .pair("[", "]")
+        .escape('\\')
+        .build();
+    String str = "a{b[c}]d}x${y\\}z}]{[}";
+    List<BalancedScanner.Pair> pairs = scanner.findAll(str);
+    Assert.assertEquals(3, pairs.size());
+    Assert.assertEquals("{b[c}]d}", str.substring((int) pairs.get(0).getOpen(), (int) pairs.get(0).getClose() + 1));
+    Assert.assertEquals(1, pairs.get(1).getKind());
+    Assert.assertEquals("${y\\}z}", str.substring((int) pairs.get(1).getOpen(), (int) pairs.get(1).getClose() + 1));
+    Assert.assertFalse(pairs.get(2).isClosed());
+    Assert.assertEquals(str.lastIndexOf('{'), pairs.get(2).getOpen());
+
+    String big = StringUtil.repeat(str.substring(0, str.length() - 3), 5000);
+    List<BalancedScanner.Pair> fromReader = new ArrayList<>();
+    Reader slow = new FilterReader(new StringReader(big)) {
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+        return super.read(cbuf, off, Math.min(len, 7));
+      }
+    };
+    scanner.scan(slow, (k, o, c) -> fromReader.add(new BalancedScanner.Pair(k, o, c)));
+    Assert.assertEquals(10000, fromReader.size());
+    Assert.assertEquals(scanner.findAll(big).toString(), fromReader.toString());
+  }
+
   @Theory
   public void notExistChars(@TestedOn(ints = { 5, 50, 500 }) int count) {
     StringBuilder sb = new StringBuilder();
@@ -46,4 +139,142 @@ public class TestStringUtil {
         .requestMore(count)
         .assertNever(c -> string.indexOf(c.charValue()) != -1);
   }
+
+  @Test
+  public void charBitmap() throws Exception {
+    CharBitmap bitmap = CharBitmap.of(new StringReader("\u0000ab\uffff"));
+    Assert.assertEquals(4, bitmap.cardinality());
+    Assert.assertEquals(1, bitmap.nextClearBit(0));
+    Assert.assertEquals('c', bitmap.nextClearBit('a'));
+    Assert.assertEquals(0xfffe, bitmap.nextClearBit(0xfffe));
+    Assert.assertEquals(-1, bitmap.nextClearBit(0xffff));
+    bitmap.set(100, 200);
+    Assert.assertEquals(201, bitmap.nextClearBit(100));
+    Assert.assertEquals(100, bitmap.nextSetBit(99));
+    Iterator<Character> it = StringUtil.notExistChars("\u0081\u0083");
+    Assert.assertEquals('\u0082', it.next().charValue());
+    Assert.assertEquals('\u0084', it.next().charValue());
+    int count = 2;
+    while (it.hasNext()) {
+      Assert.assertFalse(Character.isSurrogate(it.next()));
+      count++;
+    }
+    Assert.assertEquals(65536 - 129 - 2 - 2048, count);
+  }
+
+  @Test
+  public void lineIndex() throws Exception {
+    for (String str : new String[] { "", "a", "\n", "a\r\n\nb\rc\n\n", "\u2028a\u000b\n\r\n" }) {
+      Assert.assertEquals(str.split("\\R").length, StringUtil.countLine(str));
+    }
+    String str = "ab\r\ncd\n\nef\rg";
+    LineIndex index = LineIndex.of(str);
+    Assert.assertEquals(5, index.getLineCount());
+    Assert.assertEquals(4, index.getLineStart(1));
+    Assert.assertEquals(8, index.getLineStart(3));
+    Assert.assertEquals(1, index.getLine(6));
+    Assert.assertEquals(3, index.getLine(10));
+    Assert.assertEquals(4, index.getLine(11));
+
+    Path file = Files.createTempFile("lineIndex", ".txt");
+    try {
+      // 19 bytes and 5 lines a unit, the 2 chinese chars are 3 bytes each in UTF-8
+      String unit = str + "\u4e2d\u6587\n";
+      int[] unitStarts = { 0, 4, 7, 8, 11 };
+      Files.write(file, StringUtil.repeat(unit, 1000).getBytes(StandardCharsets.UTF_8));
+      LineIndex fileIndex = LineIndex.of(file);
+      Assert.assertEquals(19000, fileIndex.getLength());
+      Assert.assertEquals(5000, fileIndex.getLineCount());
+      Assert.assertEquals(5000, LineIndex.countLines(file));
+      for (int line = 0; line < 5000; line++) {
+        Assert.assertEquals(line / 5 * 19 + unitStarts[line % 5], fileIndex.getLineStart(line));
+      }
+      Assert.assertEquals(4324, fileIndex.getLine(864 * 19 + 12));
+      Assert.assertEquals(4324, fileIndex.getLine(864 * 19 + 18));
+      Assert.assertEquals(4325, fileIndex.getLine(865 * 19));
+
+      // every window size splits some unit, e.g. 3 splits the first \r\n
+      Files.write(file, StringUtil.repeat(unit, 10).getBytes(StandardCharsets.UTF_8));
+      for (int window = 1; window <= 20; window++) {
+        LineIndex small = LineIndex.of(file, window);
+        Assert.assertEquals(50, small.getLineCount());
+        Assert.assertEquals(50, LineIndex.countLines(file, window));
+        for (int line = 0; line < 50; line++) {
+          Assert.assertEquals(line / 5 * 19 + unitStarts[line % 5], small.getLineStart(line));
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void encode() {
+    String str = "abc\u4e2d\u6587";
+    Assert.assertEquals(Base64.getEncoder().encodeToString(str.getBytes(StandardCharsets.UTF_8)),
+        StringUtil.encode(str));
+    Assert.assertEquals(str, StringUtil.decode(StringUtil.encode(str)));
+  }
+
+  @Test
+  public void hex() {
+    byte[] bytes = { 0, 1, 0x7f, (byte) 0x80, (byte) 0xff };
+    Assert.assertEquals("00017f80ff", HexUtil.toHex(bytes));
+    Assert.assertArrayEquals(bytes, HexUtil.decode("00017F80ff"));
+    byte[] dst = new byte[4];
+    Assert.assertEquals(3, HexUtil.decode("0aFF", dst, 1));
+    Assert.assertArrayEquals(new byte[] { 0, 0x0a, (byte) 0xff, 0 }, dst);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void hexOddLength() {
+    HexUtil.decode("0aF", new byte[2], 0);
+  }
+
+  @Test
+  public void base64Streaming() {
+    Random random = new Random(0);
+    for (int length = 0; length < 40; length++) {
+      byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      Base64Util.Encoder encoder = Base64Util.encoder();
+      ByteBuffer encoded = ByteBuffer.allocate(Base64Util.encodedLength(length));
+      for (int i = 0; i < length; i += 5) {
+        encoder.encode(ByteBuffer.wrap(bytes, i, Math.min(5, length - i)), encoded, false);
+      }
+      encoder.encode(ByteBuffer.allocate(0), encoded, true);
+      Assert.assertArrayEquals(Base64.getEncoder().encode(bytes), encoded.array());
+
+      ByteBuffer decoded = ByteBuffer.allocate(length);
+      Base64Util.decoder().decode((ByteBuffer) encoded.flip(), decoded, true);
+      Assert.assertArrayEquals(bytes, decoded.array());
+    }
+  }
+
+  @Test
+  public void base64Padding() {
+    for (String str : new String[] { "ab", "ab==", "abc", "abc=", "abcd" }) {
+      Assert.assertArrayEquals(Base64.getDecoder().decode(str), base64Decode(str));
+    }
+    for (String str : new String[] { "ab=", "ab===", "abc==", "abcd=", "a===", "ab==c" }) {
+      try {
+        Base64.getDecoder().decode(str);
+        Assert.fail("JDK accepts " + str);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        base64Decode(str);
+        Assert.fail("Should reject " + str);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  private static byte[] base64Decode(String str) {
+    ByteBuffer decoded = ByteBuffer.allocate(3);
+    Base64Util.decoder().decode(ByteBuffer.wrap(str.getBytes(StandardCharsets.US_ASCII)), decoded, true);
+    return Arrays.copyOf(decoded.array(), decoded.position());
+  }
 }
@@ -0,0 +1,171 @@
+package xdean.jex.util.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import xdean.jex.util.task.TaskPool.RejectPolicy;
+
+public class TestTaskPool {
+  @Test
+  public void testAbort() throws Exception {
+    CountDownLatch block = new CountDownLatch(1);
+    try (TaskPool pool = TaskPool.builder("abort").threads(1).queueSize(1).rejectPolicy(RejectPolicy.ABORT).build()) {
+      CompletableFuture<Void> running = pool.submit(() -> await(block));
+      CompletableFuture<Void> queued = pool.submit(() -> await(block));
+      assertFailed(RejectedExecutionException.class, pool.submit(() -> {
+      }));
+      try {
+        pool.execute(() -> {
+        });
+        throw new AssertionError();
+      } catch (RejectedExecutionException e) {
+      }
+      assertEquals(2, pool.getRejectedCount());
+      block.countDown();
+      running.get(5, TimeUnit.SECONDS);
+      queued.get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testCallerRuns() throws Exception {
+    CountDownLatch block = new CountDownLatch(1);
+    try (TaskPool pool = TaskPool.builder("caller").threads(1).queueSize(1)
+        .rejectPolicy(RejectPolicy.CALLER_RUNS).build()) {
+      pool.submit(() -> await(block));
+      pool.submit(() -> await(block));
+      Thread caller = Thread.currentThread();
+      assertSame(caller, pool.submit(() -> Thread.currentThread()).get());
+      block.countDown();
+    }
+  }
+
+  @Test
+  public void testDiscardOldest() throws Exception {
+    CountDownLatch block = new CountDownLatch(1);
+    try (TaskPool pool = TaskPool.builder("discard").threads(1).queueSize(1)
+        .rejectPolicy(RejectPolicy.DISCARD_OLDEST).build()) {
+      pool.submit(() -> await(block));
+      CompletableFuture<Void> oldest = pool.submit(() -> await(block));
+      CompletableFuture<String> newest = pool.submit(() -> "new");
+      assertFailed(RejectedExecutionException.class, oldest);
+      block.countDown();
+      assertEquals("new", newest.get(5, TimeUnit.SECONDS));
+      assertEquals(1, pool.getRejectedCount());
+    }
+  }
+
+  @Test
+  public void testBlock() throws Exception {
+    CountDownLatch block = new CountDownLatch(1);
+    try (TaskPool pool = TaskPool.builder("block").threads(1).queueSize(1)
+        .blockTimeout(100, TimeUnit.MILLISECONDS).build()) {
+      pool.submit(() -> await(block));
+      pool.submit(() -> await(block));
+      assertFailed(RejectedExecutionException.class, pool.submit(() -> "timeout"));
+      assertEquals(1, pool.getRejectedCount());
+      block.countDown();
+    }
+
+    CountDownLatch release = new CountDownLatch(1);
+    try (TaskPool pool = TaskPool.builder("block").threads(1).queueSize(1)
+        .blockTimeout(5, TimeUnit.SECONDS).build()) {
+      pool.submit(() -> await(release));
+      pool.submit(() -> await(release));
+      new Thread(() -> {
+        sleep(100);
+        release.countDown();
+      }).start();
+      Thread caller = Thread.currentThread();
+      CompletableFuture<Thread> waited = pool.submit(() -> Thread.currentThread());
+      assertTrue(waited.get(5, TimeUnit.SECONDS) != caller);
+      assertEquals(0, pool.getRejectedCount());
+    }
+  }
+
+  @Test
+  public void testShutdown() throws Exception {
+    CountDownLatch block = new CountDownLatch(1);
+    TaskPool pool = TaskPool.builder("shutdown").threads(1).queueSize(1).build();
+    pool.submit(() -> await(block));
+    CompletableFuture<String> queued = pool.submit(() -> "queued");
+    pool.shutdown();
+    // caller runs policy doesn't run tasks after shutdown
+    assertFailed(RejectedExecutionException.class, pool.submit(() -> "rejected"));
+    block.countDown();
+    assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    try (TaskPool pool = TaskPool.builder("failure").threads(1).build()) {
+      assertFailed(IllegalStateException.class, pool.submit(() -> {
+        throw new IllegalStateException();
+      }));
+
+      CompletableFuture<Throwable> uncaught = new CompletableFuture<>();
+      Thread.UncaughtExceptionHandler old = Thread.getDefaultUncaughtExceptionHandler();
+      Thread.setDefaultUncaughtExceptionHandler((t, e) -> uncaught.complete(e));
+      try {
+        pool.execute(() -> {
+          throw new IllegalStateException("execute");
+        });
+        assertEquals("execute", uncaught.get(5, TimeUnit.SECONDS).getMessage());
+      } finally {
+        Thread.setDefaultUncaughtExceptionHandler(old);
+      }
+    }
+  }
+
+  @Test
+  public void testAsync() throws Exception {
+    CompletableFuture<Throwable> uncaught = new CompletableFuture<>();
+    Thread.UncaughtExceptionHandler old = Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler((t, e) -> uncaught.complete(e));
+    try {
+      TaskUtil.async(() -> {
+        throw new IllegalStateException("async");
+      });
+      assertEquals("async", uncaught.get(5, TimeUnit.SECONDS).getMessage());
+    } finally {
+      Thread.setDefaultUncaughtExceptionHandler(old);
+    }
+    assertFailed(IllegalStateException.class, TaskUtil.asyncRun(() -> {
+      throw new IllegalStateException();
+    }));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void assertFailed(Class<? extends Throwable> type, CompletableFuture<?> future) throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      throw new AssertionError();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause().toString(), type.isInstance(e.getCause()));
+    }
+  }
+}
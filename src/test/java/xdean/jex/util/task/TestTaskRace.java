@@ -0,0 +1,158 @@
+package xdean.jex.util.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestTaskRace {
+  @Test
+  public void testFirstSuccess() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    String result = TaskUtil.<String> firstSuccessAsync(
+        () -> {
+          throw new Exception();
+        },
+        () -> {
+          started.countDown();
+          try {
+            Thread.sleep(10000);
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+          }
+          return "slow";
+        },
+        () -> {
+          // a task not started yet is skipped rather than interrupted
+          started.await(5, TimeUnit.SECONDS);
+          return "fast";
+        })
+        .get(5, TimeUnit.SECONDS);
+    assertEquals("fast", result);
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFirstNonNull() throws Exception {
+    assertEquals(Optional.of(1), TaskUtil.<Integer> firstNonNullAsync(() -> null, () -> 1).get(5, TimeUnit.SECONDS));
+    assertFalse(TaskUtil.<Integer> firstNonNullAsync(() -> null, () -> null).get(5, TimeUnit.SECONDS).isPresent());
+  }
+
+  @Test
+  public void testHedgeAndTimeout() throws Exception {
+    long start = System.nanoTime();
+    String result = TaskRace.<String> of(
+        () -> {
+          Thread.sleep(10000);
+          return "first";
+        },
+        () -> "second")
+        .hedge(50, TimeUnit.MILLISECONDS)
+        .start()
+        .get(5, TimeUnit.SECONDS);
+    assertEquals("second", result);
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+    try {
+      TaskRace.<String> of(() -> {
+        Thread.sleep(10000);
+        return "never";
+      })
+          .timeout(50, TimeUnit.MILLISECONDS)
+          .start()
+          .get(5, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      assertTrue(e.getCause().getSuppressed()[0] instanceof TimeoutException);
+      return;
+    }
+    throw new AssertionError();
+  }
+
+  @Test
+  public void testSaturatedExecutor() throws Exception {
+    // the first task gets a thread, then the executor is saturated and runs tasks in the caller
+    AtomicInteger count = new AtomicInteger();
+    Executor saturated = r -> {
+      if (count.getAndIncrement() == 0) {
+        new Thread(r).start();
+      } else {
+        r.run();
+      }
+    };
+    CompletableFuture<String> race = TaskRace.<String> of(
+        () -> {
+          Thread.sleep(10000);
+          return "first";
+        },
+        () -> {
+          Thread.sleep(2000);
+          return "second";
+        })
+        .executor(saturated)
+        .hedge(10, TimeUnit.MILLISECONDS)
+        .start();
+    Thread.sleep(100);
+    // the timer is not blocked by the hedged task
+    long start = System.nanoTime();
+    try {
+      TaskRace.<String> of(() -> {
+        Thread.sleep(10000);
+        return "never";
+      })
+          .timeout(50, TimeUnit.MILLISECONDS)
+          .start()
+          .get(5, TimeUnit.SECONDS);
+      throw new AssertionError();
+    } catch (ExecutionException e) {
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+    race.cancel(true);
+    try {
+      race.get();
+    } catch (Exception e) {
+    }
+    assertEquals(2, count.get());
+  }
+
+  @Test
+  public void testSaturatedHedgeRejected() throws Exception {
+    AtomicInteger count = new AtomicInteger();
+    Executor saturated = r -> {
+      if (count.getAndIncrement() == 0) {
+        new Thread(r).start();
+      } else {
+        r.run();
+      }
+    };
+    try {
+      TaskRace.<String> of(
+          () -> {
+            Thread.sleep(300);
+            throw new Exception("first");
+          },
+          () -> "second")
+          .executor(saturated)
+          .hedge(10, TimeUnit.MILLISECONDS)
+          .start()
+          .get(5, TimeUnit.SECONDS);
+      throw new AssertionError();
+    } catch (ExecutionException e) {
+      Throwable[] suppressed = e.getCause().getSuppressed();
+      assertEquals(2, suppressed.length);
+      assertTrue(suppressed[0] instanceof RejectedExecutionException);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package xdean.jex.util.time;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import xdean.jex.extra.ThreadSafeDateFormat;
+
+public class TestDateTimeFormat {
+  @Test
+  public void testIso() throws Exception {
+    Random random = new Random(42);
+    for (ZoneId zone : new ZoneId[] { ZoneOffset.UTC, ZoneId.of("Asia/Kolkata"), ZoneId.of("America/New_York") }) {
+      DateTimeFormat format = DateTimeFormat.iso(zone);
+      DateTimeFormatter expect = DateTimeFormatter.ofPattern(DateTimeFormat.ISO_PATTERN).withZone(zone);
+      for (int i = 0; i < 1000; i++) {
+        long millis = -62_000_000_000_000L + (long) (random.nextDouble() * 312_000_000_000_000L);
+        String text = format.format(millis);
+        assertEquals(expect.format(java.time.Instant.ofEpochMilli(millis)), text);
+        if (millis > -631152000000L) {
+          // historical offsets have seconds, which are not in the text
+          assertEquals(millis, format.parseMillis(text));
+        }
+      }
+    }
+    DateTimeFormat iso = DateTimeFormat.iso();
+    assertSame(iso, DateTimeFormat.of(DateTimeFormat.ISO_PATTERN, ZoneOffset.UTC, Locale.ROOT));
+    assertEquals(1_000L, iso.parseMillis("1970-01-01T00:00:01"));
+    assertEquals(1_500L, iso.parseMillis("1970-01-01 00:00:01.5Z"));
+    assertEquals(1_123L, iso.parseMillis("1970-01-01T08:00:01.123456789+08"));
+    assertEquals(-3600_000L, iso.parseMillis("1970-01-01T00:00:00+0100"));
+    char[] cs = "[1970-01-01T00:00:00.001Z]".toCharArray();
+    assertEquals(1L, iso.parseMillis(cs, 1, 24));
+    assertEquals(24, iso.formatTo(2, cs, 1));
+    assertEquals("[1970-01-01T00:00:00.002Z]", new String(cs));
+    for (String bad : new String[] { "1970-02-30T00:00:00Z", "1970-01-01T24:00:00Z", "1970-01-01T00:00:00.Z",
+        "1970-01-01" }) {
+      try {
+        iso.parseMillis(bad);
+        throw new AssertionError(bad);
+      } catch (DateTimeParseException e) {
+      }
+    }
+  }
+
+  @Test
+  public void testPattern() throws Exception {
+    DateTimeFormat format = DateTimeFormat.of("yyyy/MM/dd", ZoneOffset.ofHours(1), Locale.ROOT);
+    assertEquals(-3600_000L, format.parseMillis("1970/01/01"));
+    assertEquals("1970/01/01", format.format(0));
+    assertEquals("[1970/01/02", format.formatTo(86400_000L, new StringBuilder("[")).toString());
+  }
+
+  @Test
+  public void testCached() throws Exception {
+    for (String pattern : new String[] { DateTimeFormat.ISO_PATTERN, "HH:mm:ss.SSS dd/MM/yyyy", "yyyyMMddHHmmss",
+        "yyyy-MM-dd HH:mm" }) {
+      DateTimeFormat format = DateTimeFormat.of(pattern, ZoneId.of("Europe/London"), Locale.ROOT);
+      CachedDateTimeFormat cached = CachedDateTimeFormat.of(format);
+      long millis = 1_500_000_000_000L;
+      for (int i = 0; i < 5000; i++) {
+        millis += i * 37;
+        String text = format.format(millis);
+        assertEquals(text, cached.format(millis));
+        assertEquals("<" + text, cached.formatTo(millis, new StringBuilder("<")).toString());
+        assertEquals(format.parseMillis(text), cached.parseMillis(text));
+      }
+    }
+    CachedDateTimeFormat iso = CachedDateTimeFormat.of(DateTimeFormat.iso());
+    assertEquals(1_000L, iso.parseMillis("1970-01-01T00:00:01.000Z"));
+    assertEquals(1_999L, iso.parseMillis("1970-01-01T00:00:01.999Z"));
+    assertEquals(1_500L, iso.parseMillis("1970-01-01T00:00:01.5Z"));
+    assertEquals(59_001L, iso.parseMillis("1970-01-01T00:00:59.001Z"));
+  }
+
+  @Test
+  public void testThreadSafeDateFormatSetter() throws Exception {
+    ThreadSafeDateFormat format = new ThreadSafeDateFormat(() -> new SimpleDateFormat("HH"));
+    format.setTimeZone(TimeZone.getTimeZone("GMT+3"));
+    String[] result = new String[1];
+    Thread t = new Thread(() -> result[0] = format.format(new java.util.Date(0)));
+    t.start();
+    t.join();
+    assertEquals("03", result[0]);
+    assertEquals("03", format.format(new java.util.Date(0)));
+  }
+}
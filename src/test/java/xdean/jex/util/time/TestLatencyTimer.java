@@ -0,0 +1,46 @@
+package xdean.jex.util.time;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class TestLatencyTimer {
+  @Test
+  public void testBucket() {
+    for (long v : new long[] { 0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE }) {
+      int index = LatencyHistogram.indexOf(v);
+      assertTrue(LatencyHistogram.lowerBound(index) <= v);
+      assertTrue(LatencyHistogram.upperBound(index) >= v);
+    }
+  }
+
+  @Test
+  public void testPercentile() throws Exception {
+    LatencyTimer timer = LatencyTimer.of("test");
+    Thread other = new Thread(() -> IntStream.rangeClosed(1, 500).forEach(i -> timer.record(i * 1000)));
+    other.start();
+    other.join();
+    IntStream.rangeClosed(501, 1000).forEach(i -> timer.record(i * 1000));
+    LatencySnapshot snapshot = timer.snapshot();
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(1000000, snapshot.getMax());
+    assertEquals(500000, snapshot.getP50(), 500000 * 0.04);
+    assertEquals(990000, snapshot.getP99(), 990000 * 0.04);
+    assertEquals(snapshot.getCount(), timer.snapshot().getCount());
+  }
+
+  @Test
+  public void testShortLivedThreads() throws Exception {
+    LatencyTimer timer = LatencyTimer.of("test.shortLived");
+    for (int i = 0; i < 500; i++) {
+      Thread t = new Thread(() -> timer.record(1000));
+      t.start();
+      t.join();
+      assertTrue(timer.getRecorderCount() <= 16);
+    }
+    assertEquals(500, timer.snapshot().getCount());
+  }
+}